@@ -0,0 +1,153 @@
+package com.kopylov.springbootonlineshop;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Overloads {@code GET /products/{id}} over HTTP: the DAO stands in for a database that runs
+ * {@link #DATABASE_CONNECTIONS} queries of {@link #QUERY_MILLIS} at a time, about 80 a second, and 400 clients
+ * each send a request every {@link #THINK_MILLIS} or so, several times that. Without
+ * {@code products.load-shedding.enabled} every request waits its turn for the database and p99 grows with the
+ * number of clients; with it the excess is answered 503 at once and admitted requests keep close to the query
+ * time. The think time is spent in an invocation-level setup, outside the measured time; that leaves the
+ * throughput mode's rates inflated, so only the ratio of its {@code ok} and {@code shed} counters means anything.
+ * <p>
+ * {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=LoadSheddingLoadBenchmark}
+ */
+@State(Scope.Benchmark)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class LoadSheddingLoadBenchmark {
+
+    private static final int DATABASE_CONNECTIONS = 4;
+    private static final long QUERY_MILLIS = 50;
+    private static final long THINK_MILLIS = 1000;
+
+    @Param({"false", "true"})
+    private boolean loadShedding;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringBootOnlineShop.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .addBeanPostProcessor(new SaturatedDatabasePostProcessor()))
+                .run("--server.port=0",
+                        "--products.cache.enabled=false",
+                        "--products.load-shedding.enabled=" + loadShedding,
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.url=jdbc:h2:mem:load-shedding;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=50",
+                        "--spring.flyway.enabled=false",
+                        "--spring.sql.init.mode=always",
+                        "--spring.sql.init.schema-locations=classpath:db/migration/V1__create_product_table.sql,"
+                                + "classpath:db/migration/V3__add_product_version.sql",
+                        "--logging.level.root=WARN");
+        ProductFixtures.migrateToMinorUnitPrices(context.getBean(JdbcTemplate.class));
+        context.getBean(JdbcTemplate.class).update("INSERT INTO products (name, price, creation_date) VALUES (?, ?, ?)",
+                "Phone", 1000, Timestamp.valueOf(LocalDateTime.now()));
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products/1")).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SampleTime)
+    public int getById(Client client) throws Exception {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    public void getByIdCounted(Client client, Responses responses) throws Exception {
+        int status = httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+        if (status == 200) {
+            responses.ok++;
+        } else if (status == 503) {
+            responses.shed++;
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        @Setup(Level.Invocation)
+        public void think() throws InterruptedException {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(THINK_MILLIS / 2, THINK_MILLIS * 3 / 2));
+        }
+    }
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Responses {
+
+        public long ok;
+        public long shed;
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            ok = 0;
+            shed = 0;
+        }
+    }
+
+    private static class SaturatedDatabasePostProcessor implements BeanPostProcessor {
+
+        private final Semaphore connections = new Semaphore(DATABASE_CONNECTIONS, true);
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            // Only the primary DAO; the decorators are wired to the JDBC one by its class.
+            if (!"productsDao".equals(beanName) || !(bean instanceof ProductsDao productsDao)) {
+                return bean;
+            }
+            return Proxy.newProxyInstance(ProductsDao.class.getClassLoader(), new Class<?>[]{ProductsDao.class},
+                    (proxy, method, args) -> {
+                        connections.acquire();
+                        try {
+                            Thread.sleep(QUERY_MILLIS);
+                            return method.invoke(productsDao, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        } finally {
+                            connections.release();
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.kopylov.springbootonlineshop;
+
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+import org.h2.api.Trigger;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.support.PathMatchingResourcePatternResolver;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.TreeSet;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+public final class ProductFixtures {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final Pattern UPDATE_RETURNING = Pattern.compile("(UPDATE .+) RETURNING (.+)", Pattern.DOTALL);
+    private static final Pattern MIGRATION_VERSION = Pattern.compile("V(\\d+)__.+\\.sql");
+
+    /**
+     * The migration {@link #SCHEMA} was written against. A newer migration fails {@link #addCatalogSupport} until
+     * both are brought up to it.
+     */
+    private static final int SCHEMA_VERSION = 8;
+
+    /**
+     * The columns of the tables the application uses, as the migrations up to {@link #SCHEMA_VERSION} leave them.
+     */
+    private static final Map<String, Set<String>> SCHEMA = Map.of(
+            "products", Set.of("id", "name", "price", "creation_date", "version", "currency"),
+            "catalog_version", Set.of("id", "version", "last_modified"),
+            "product_changes", Set.of("id", "catalog_version", "type", "product_id", "name", "price", "currency",
+                    "creation_date", "version", "changed_at"));
+
+    private ProductFixtures() {
+    }
+
+    /**
+     * Brings an H2 products table created from V1 and V3 to the V6 price columns. V6 itself changes the
+     * PL/pgSQL catalog trigger, which H2 cannot run.
+     */
+    public static void migrateToMinorUnitPrices(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("ALTER TABLE products ALTER COLUMN price SET DATA TYPE BIGINT");
+        jdbcTemplate.execute("ALTER TABLE products ADD COLUMN currency VARCHAR(3) NOT NULL DEFAULT 'USD'");
+        jdbcTemplate.execute("CREATE INDEX products_currency_price_idx ON products (currency, price, id)");
+    }
+
+    /**
+     * Adds to an H2 schema brought up by {@link #migrateToMinorUnitPrices} the parts of V4, V5 and V7 that the
+     * running application depends on: the catalog version, bumped by a Java trigger in place of the PL/pgSQL one,
+     * an empty {@code product_changes} table for the change feed to poll, and the sort indexes. The trigger fires
+     * per row, since H2 runs statement triggers in auto-commit and refuses the update they make. Substring search
+     * gets a {@code similarity} function in place of pg_trgm's. The application's SQL then needs
+     * {@link #withPostgresSyntax}.
+     * <p>
+     * Fails when the tables built here no longer have the columns of the latest migration, so the load tests do not
+     * quietly run against an outdated schema.
+     */
+    public static void addCatalogSupport(JdbcTemplate jdbcTemplate) {
+        jdbcTemplate.execute("CREATE TABLE catalog_version (id SMALLINT DEFAULT 1 PRIMARY KEY, "
+                + "version BIGINT NOT NULL DEFAULT 0, last_modified TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now())");
+        jdbcTemplate.execute("INSERT INTO catalog_version DEFAULT VALUES");
+        jdbcTemplate.execute("CREATE TRIGGER products_catalog_version AFTER INSERT, UPDATE, DELETE ON products "
+                + "FOR EACH ROW CALL \"" + CatalogVersionTrigger.class.getName() + "\"");
+        jdbcTemplate.execute("CREATE TABLE product_changes (id BIGSERIAL PRIMARY KEY, catalog_version BIGINT NOT NULL, "
+                + "type VARCHAR(8) NOT NULL, product_id BIGINT, name VARCHAR(20), price BIGINT, currency VARCHAR(3), "
+                + "creation_date TIMESTAMP, version BIGINT, changed_at TIMESTAMP WITH TIME ZONE NOT NULL DEFAULT now())");
+        jdbcTemplate.execute("CREATE INDEX products_name_c_id_idx ON products (name, id)");
+        jdbcTemplate.execute("CREATE INDEX products_price_id_idx ON products (price, id)");
+        jdbcTemplate.execute("CREATE INDEX products_creation_date_id_idx ON products (creation_date, id)");
+        jdbcTemplate.execute("CREATE ALIAS similarity FOR \"" + ProductFixtures.class.getName() + ".similarity\"");
+        assertMatchesLatestMigration(jdbcTemplate);
+    }
+
+    private static void assertMatchesLatestMigration(JdbcTemplate jdbcTemplate) {
+        int latest = latestMigration();
+        if (latest != SCHEMA_VERSION) {
+            throw new IllegalStateException("ProductFixtures describes the schema at V" + SCHEMA_VERSION
+                    + " but the latest migration is V" + latest + "; update SCHEMA and the H2 fixtures");
+        }
+        SCHEMA.forEach((table, columns) -> {
+            Set<String> built = new TreeSet<>(jdbcTemplate.queryForList("SELECT column_name FROM "
+                    + "information_schema.columns WHERE table_schema = current_schema() AND table_name = ?",
+                    String.class, table));
+            if (!built.equals(new TreeSet<>(columns))) {
+                throw new IllegalStateException("H2 table " + table + " has columns " + built + ", V"
+                        + SCHEMA_VERSION + " has " + new TreeSet<>(columns));
+            }
+        });
+    }
+
+    private static int latestMigration() {
+        try {
+            Resource[] migrations = new PathMatchingResourcePatternResolver()
+                    .getResources("classpath:db/migration/V*__*.sql");
+            return Arrays.stream(migrations)
+                    .map(Resource::getFilename)
+                    .filter(Objects::nonNull)
+                    .map(MIGRATION_VERSION::matcher)
+                    .filter(Matcher::matches)
+                    .mapToInt(matcher -> Integer.parseInt(matcher.group(1)))
+                    .max()
+                    .orElseThrow(() -> new IllegalStateException("No migrations in db/migration"));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Wraps an H2 data source so that it runs the PostgreSQL the application writes where H2 does not parse it:
+     * {@code UPDATE ... RETURNING} becomes the equivalent {@code SELECT ... FROM FINAL TABLE (UPDATE ...)}, and
+     * {@code COLLATE "C"} is dropped, since H2 already compares strings by UTF-16 unit, which differs from code
+     * point order only for supplementary characters.
+     */
+    public static DataSource withPostgresSyntax(DataSource dataSource) {
+        return new DelegatingDataSource(dataSource) {
+            @Override
+            public Connection getConnection() throws SQLException {
+                return rewritingPostgresSyntax(super.getConnection());
+            }
+
+            @Override
+            public Connection getConnection(String username, String password) throws SQLException {
+                return rewritingPostgresSyntax(super.getConnection(username, password));
+            }
+        };
+    }
+
+    private static Connection rewritingPostgresSyntax(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(ProductFixtures.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args[0] instanceof String sql) {
+                        sql = sql.replace(" COLLATE \"C\"", "");
+                        args[0] = sql;
+                        Matcher matcher = UPDATE_RETURNING.matcher(sql);
+                        if (matcher.matches()) {
+                            args[0] = "SELECT " + matcher.group(2) + " FROM FINAL TABLE (" + matcher.group(1) + ")";
+                        }
+                    }
+                    try {
+                        return method.invoke(connection, args);
+                    } catch (InvocationTargetException e) {
+                        throw e.getCause();
+                    }
+                });
+    }
+
+    /**
+     * Trigram similarity close to pg_trgm's: the three-letter sequences two strings share over those in either, each
+     * string padded with two spaces in front and one behind.
+     */
+    public static double similarity(String left, String right) {
+        Set<String> leftTrigrams = trigrams(left);
+        Set<String> rightTrigrams = trigrams(right);
+        int total = leftTrigrams.size() + rightTrigrams.size();
+        leftTrigrams.retainAll(rightTrigrams);
+        int shared = leftTrigrams.size();
+        return total == shared ? 0 : (double) shared / (total - shared);
+    }
+
+    private static Set<String> trigrams(String value) {
+        String padded = "  " + value + " ";
+        Set<String> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(padded.substring(i, i + 3));
+        }
+        return trigrams;
+    }
+
+    public static List<Product> products(int count) {
+        SplittableRandom random = new SplittableRandom(42);
+        List<Product> products = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            products.add(Product.builder()
+                    .id(i + 1)
+                    .name("Product " + random.nextInt(count))
+                    .price(random.nextInt(1_000_000))
+                    .currency(Money.DEFAULT_CURRENCY)
+                    .creationDate(START.plusSeconds(random.nextInt(365 * 24 * 3600)))
+                    .build());
+        }
+        return products;
+    }
+
+    public static class CatalogVersionTrigger implements Trigger {
+
+        @Override
+        public void fire(Connection connection, Object[] oldRow, Object[] newRow) throws SQLException {
+            try (Statement statement = connection.createStatement()) {
+                statement.executeUpdate("UPDATE catalog_version SET version = version + 1, last_modified = now() "
+                        + "WHERE id = 1");
+            }
+        }
+    }
+}
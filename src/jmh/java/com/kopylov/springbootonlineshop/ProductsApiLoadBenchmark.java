@@ -0,0 +1,202 @@
+package com.kopylov.springbootonlineshop;
+
+import com.kopylov.springbootonlineshop.dao.jdbc.JdbcProductsDao;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end load test of the {@code /products} API: boots the application on an in-memory H2 database, seeds
+ * {@link #catalogSize} products and drives a mixed workload over HTTP, each operation from its own group of
+ * threads: sorted first pages, lookups by id, substring searches, creates and unconditional updates. JMH reports
+ * throughput and the latency percentiles of every operation separately.
+ * <p>
+ * The default mix is 4 listing, 8 lookup, 2 search, 1 create and 1 update threads; {@code -tg} sets other counts in
+ * that order. {@link #properties} passes application properties, comma-separated, to compare configurations. The
+ * results go to {@code jmh.result} as JSON, so runs of different versions can be compared side by side:
+ * <pre>
+ * mvn -Pbenchmarks test-compile exec:exec -Djmh.result=target/load-before.json \
+ *     -Djmh.args="ProductsApiLoadBenchmark -p catalogSize=100000 -tg 8,16,4,2,2"
+ * </pre>
+ * H2 stands in for PostgreSQL as described in {@link ProductFixtures#addCatalogSupport}, so the numbers measure the
+ * application rather than the database; search in particular scans instead of using a trigram index, and the
+ * application's SQL goes through {@link ProductFixtures#withPostgresSyntax}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 10)
+@Measurement(iterations = 3, time = 20)
+@Fork(1)
+public class ProductsApiLoadBenchmark {
+
+    private static final String DATABASE_URL = "jdbc:h2:mem:products-load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE";
+    private static final String[] SORTS = {"name", "price", "date"};
+
+    @Param({"10000", "100000"})
+    private int catalogSize;
+
+    /**
+     * Load shedding is off by default: a 503 fails the run, and this measures the application, not the limiter.
+     */
+    @Param({"products.load-shedding.enabled=false"})
+    private String properties;
+
+    private SingleConnectionDataSource schemaDataSource;
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private String baseUrl;
+
+    @Setup
+    public void setUp() throws SQLException {
+        // The schema goes in before the application starts, so the change feed's first poll finds its table. This
+        // connection keeps the in-memory database alive until tear-down.
+        JdbcDataSource h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL(DATABASE_URL);
+        h2DataSource.setUser("sa");
+        schemaDataSource = new SingleConnectionDataSource(h2DataSource.getConnection(), true);
+        new ResourceDatabasePopulator(
+                new ClassPathResource("db/migration/V1__create_product_table.sql"),
+                new ClassPathResource("db/migration/V3__add_product_version.sql")).execute(schemaDataSource);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(schemaDataSource);
+        ProductFixtures.migrateToMinorUnitPrices(jdbcTemplate);
+        ProductFixtures.addCatalogSupport(jdbcTemplate);
+        new JdbcProductsDao(jdbcTemplate, jdbcTemplate, 1000, 1000).saveAll(ProductFixtures.products(catalogSize));
+
+        List<String> args = new ArrayList<>(List.of("--server.port=0",
+                "--spring.datasource.driverClassName=org.h2.Driver",
+                "--spring.datasource.url=" + DATABASE_URL,
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.flyway.enabled=false",
+                "--spring.sql.init.mode=never",
+                "--logging.level.root=WARN"));
+        Arrays.stream(properties.split(","))
+                .filter(property -> !property.isBlank())
+                .forEach(property -> args.add("--" + property.trim()));
+        context = new SpringApplicationBuilder(SpringBootOnlineShop.class)
+                .initializers(application -> application.getBeanFactory().addBeanPostProcessor(new BeanPostProcessor() {
+                    @Override
+                    public Object postProcessAfterInitialization(Object bean, String beanName) {
+                        return bean instanceof DataSource dataSource
+                                ? ProductFixtures.withPostgresSyntax(dataSource) : bean;
+                    }
+                }))
+                .run(args.toArray(String[]::new));
+
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        baseUrl = "http://localhost:" + ((WebServerApplicationContext) context).getWebServer().getPort();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+        schemaDataSource.destroy();
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(4)
+    public String listSorted(Client client) throws Exception {
+        return send(HttpRequest.newBuilder(uri("/products?limit=20&sort=" + SORTS[client.random.nextInt(SORTS.length)]))
+                .GET(), 200);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(8)
+    public String getById(Client client) throws Exception {
+        return send(HttpRequest.newBuilder(uri("/products/" + client.existingId(catalogSize))).GET(), 200);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(2)
+    public String search(Client client) throws Exception {
+        // Fixture names are "Product <n>"; "ct <n>" hits a handful of them through the substring search.
+        return send(HttpRequest.newBuilder(uri("/products?limit=20&search=ct%20" + client.random.nextInt(catalogSize)))
+                .GET(), 200);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public String create(Client client) throws Exception {
+        return send(HttpRequest.newBuilder(uri("/products/create"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(client.productJson())), 201);
+    }
+
+    @Benchmark
+    @Group("mixed")
+    @GroupThreads(1)
+    public String update(Client client) throws Exception {
+        return send(HttpRequest.newBuilder(uri("/products/" + client.existingId(catalogSize) + "/update"))
+                .header("Content-Type", "application/json")
+                .PUT(HttpRequest.BodyPublishers.ofString(client.updateJson())), 200);
+    }
+
+    private URI uri(String path) {
+        return URI.create(baseUrl + path);
+    }
+
+    /**
+     * Sends the request and fails the run on any other status than {@code expectedStatus}, so an error page is
+     * never counted as a fast response.
+     */
+    private String send(HttpRequest.Builder request, int expectedStatus) throws Exception {
+        HttpResponse<String> response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofString());
+        if (response.statusCode() != expectedStatus) {
+            throw new IllegalStateException(request.build().method() + " " + request.build().uri() + " returned "
+                    + response.statusCode() + ": " + response.body());
+        }
+        return response.body();
+    }
+
+    @State(Scope.Thread)
+    public static class Client {
+
+        private final SplittableRandom random = new SplittableRandom(Thread.currentThread().getId());
+
+        long existingId(int catalogSize) {
+            return 1 + random.nextInt(catalogSize);
+        }
+
+        String productJson() {
+            return "{\"name\":\"Load " + random.nextInt(1_000_000) + "\",\"price\":" + random.nextInt(1_000_000)
+                    + ",\"currency\":\"USD\",\"creationDate\":\"" + LocalDateTime.now() + "\"}";
+        }
+
+        /**
+         * An update as existing clients send it, without a currency, so the stored one is kept.
+         */
+        String updateJson() {
+            return "{\"name\":\"Load " + random.nextInt(1_000_000) + "\",\"price\":" + random.nextInt(1_000_000)
+                    + ",\"creationDate\":\"" + LocalDateTime.now() + "\"}";
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package com.kopylov.springbootonlineshop;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Proxy;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@code GET /products/{id}} over HTTP from more concurrent clients than Tomcat has platform threads,
+ * with the DAO delayed by {@link #JDBC_LATENCY_MILLIS} to stand in for a database round trip. Compares the
+ * default thread pool with {@code products.virtual-threads.enabled}; the sample-time mode reports p99.
+ * <p>
+ * The virtual-thread mode needs a Java 21 runtime:
+ * {@code PATH=$JAVA21_HOME/bin:$PATH mvn -Pbenchmarks test-compile exec:exec -Djmh.args=ThreadModelLoadBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 10)
+@Threads(400)
+@Fork(1)
+public class ThreadModelLoadBenchmark {
+
+    private static final long JDBC_LATENCY_MILLIS = 20;
+
+    @Param({"platform", "virtual"})
+    private String threadModel;
+
+    private ConfigurableApplicationContext context;
+    private HttpClient httpClient;
+    private HttpRequest request;
+
+    @Setup
+    public void setUp() {
+        context = new SpringApplicationBuilder(SpringBootOnlineShop.class)
+                .initializers(applicationContext -> applicationContext.getBeanFactory()
+                        .addBeanPostProcessor(new JdbcLatencyPostProcessor()))
+                .run("--server.port=0",
+                        "--products.cache.enabled=false",
+                        "--products.virtual-threads.enabled=" + "virtual".equals(threadModel),
+                        "--spring.datasource.driverClassName=org.h2.Driver",
+                        "--spring.datasource.url=jdbc:h2:mem:thread-model;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE",
+                        "--spring.datasource.username=sa",
+                        "--spring.datasource.password=",
+                        "--spring.datasource.hikari.maximum-pool-size=50",
+                        "--spring.flyway.enabled=false",
+                        "--spring.sql.init.mode=always",
+                        "--spring.sql.init.schema-locations=classpath:db/migration/V1__create_product_table.sql,"
+                                + "classpath:db/migration/V3__add_product_version.sql",
+                        "--logging.level.root=WARN");
+        ProductFixtures.migrateToMinorUnitPrices(context.getBean(JdbcTemplate.class));
+        context.getBean(JdbcTemplate.class).update("INSERT INTO products (name, price, creation_date) VALUES (?, ?, ?)",
+                "Phone", 1000, Timestamp.valueOf(LocalDateTime.now()));
+
+        int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+        httpClient = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/products/1")).GET().build();
+    }
+
+    @TearDown
+    public void tearDown() {
+        context.close();
+    }
+
+    @Benchmark
+    public int getById() throws Exception {
+        return httpClient.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static class JdbcLatencyPostProcessor implements BeanPostProcessor {
+
+        @Override
+        public Object postProcessAfterInitialization(Object bean, String beanName) {
+            // Only the primary DAO; the decorators are wired to the JDBC one by its class.
+            if (!"productsDao".equals(beanName) || !(bean instanceof ProductsDao productsDao)) {
+                return bean;
+            }
+            return Proxy.newProxyInstance(ProductsDao.class.getClassLoader(), new Class<?>[]{ProductsDao.class},
+                    (proxy, method, args) -> {
+                        Thread.sleep(JDBC_LATENCY_MILLIS);
+                        try {
+                            return method.invoke(productsDao, args);
+                        } catch (InvocationTargetException e) {
+                            throw e.getTargetException();
+                        }
+                    });
+        }
+    }
+}
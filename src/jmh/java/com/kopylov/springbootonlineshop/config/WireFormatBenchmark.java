@@ -0,0 +1,80 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.kopylov.springbootonlineshop.ProductFixtures;
+import com.kopylov.springbootonlineshop.model.Product;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * A {@code GET /products} payload in each representation the API negotiates: serialization, serialization plus the
+ * gzip compression Tomcat applies, and parsing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class WireFormatBenchmark {
+
+    public enum Format {
+        JSON, CBOR, SMILE
+    }
+
+    @Param({"100000"})
+    private int products;
+
+    @Param({"JSON", "CBOR", "SMILE"})
+    private Format format;
+
+    private ObjectWriter writer;
+    private ObjectReader reader;
+    private List<Product> catalog;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+        Jackson2ObjectMapperBuilder builder = Jackson2ObjectMapperBuilder.json()
+                .featuresToDisable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS);
+        ObjectMapper objectMapper = switch (format) {
+            case JSON -> builder.build();
+            case CBOR -> WireFormatConfiguration.binaryObjectMapper(builder, new CBORFactory());
+            case SMILE -> WireFormatConfiguration.binaryObjectMapper(builder, new SmileFactory());
+        };
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+        reader = objectMapper.readerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, Product.class));
+        catalog = ProductFixtures.products(products);
+        payload = writer.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+        return writer.writeValueAsBytes(catalog);
+    }
+
+    @Benchmark
+    public byte[] serializeGzipped() throws IOException {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(payload == null ? 8192 : payload.length / 4);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed, 8192)) {
+            writer.writeValue(gzip, catalog);
+        }
+        return compressed.toByteArray();
+    }
+
+    @Benchmark
+    public List<Product> parse() throws IOException {
+        return reader.readValue(payload);
+    }
+}
@@ -0,0 +1,50 @@
+package com.kopylov.springbootonlineshop.controller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.kopylov.springbootonlineshop.ProductFixtures;
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of {@link ProductDto} lists with an {@link ObjectMapper} configured like the one Spring Boot
+ * hands to the JSON message converter.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductDtoSerializationBenchmark {
+
+    @Param({"100", "10000"})
+    private int products;
+
+    private ObjectWriter writer;
+    private List<ProductDto> productDtos;
+
+    @Setup
+    public void setUp() {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        writer = objectMapper.writerFor(objectMapper.getTypeFactory().constructCollectionType(List.class, ProductDto.class));
+        productDtos = ProductFixtures.products(products).stream()
+                .map(product -> ProductDto.builder()
+                        .id(product.getId())
+                        .name(product.getName())
+                        .price(product.getPrice())
+                        .currency(product.getCurrency())
+                        .creationDate(product.getCreationDate())
+                        .build())
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serializeProductDtos() throws Exception {
+        return writer.writeValueAsBytes(productDtos);
+    }
+}
@@ -0,0 +1,100 @@
+package com.kopylov.springbootonlineshop.dao.jdbc;
+
+import com.kopylov.springbootonlineshop.ProductFixtures;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.h2.jdbcx.JdbcDataSource;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import java.sql.SQLException;
+import java.util.List;
+import java.util.Optional;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link JdbcProductsDao} queries against an in-memory H2 database in PostgreSQL mode, created from the
+ * application's own migration scripts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JdbcProductsDaoBenchmark {
+
+    private static final int PAGE_SIZE = 50;
+
+    @Param({"10000", "100000"})
+    private int products;
+
+    @Param({"NAME", "PRICE", "DATE"})
+    private ProductSort sort;
+
+    private SingleConnectionDataSource dataSource;
+    private JdbcProductsDao productsDao;
+    private SplittableRandom random;
+    private String name;
+    private Product middleOfCatalog;
+
+    @Setup
+    public void setUp() throws SQLException {
+        JdbcDataSource h2DataSource = new JdbcDataSource();
+        h2DataSource.setURL("jdbc:h2:mem:products-benchmark;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE");
+        dataSource = new SingleConnectionDataSource(h2DataSource.getConnection(), true);
+        new ResourceDatabasePopulator(
+                new ClassPathResource("db/migration/V1__create_product_table.sql"),
+                new ClassPathResource("db/migration/V3__add_product_version.sql")).execute(dataSource);
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(ProductFixtures.withPostgresSyntax(dataSource));
+        ProductFixtures.migrateToMinorUnitPrices(jdbcTemplate);
+        productsDao = new JdbcProductsDao(jdbcTemplate, jdbcTemplate, 1000, 1000);
+        productsDao.saveAll(ProductFixtures.products(products));
+
+        random = new SplittableRandom(7);
+        name = productsDao.findById(products / 2).orElseThrow().getName();
+        List<Product> firstHalf = productsDao.findPage(sort, null, products / 2);
+        middleOfCatalog = firstHalf.get(firstHalf.size() - 1);
+    }
+
+    @TearDown
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return productsDao.findAll();
+    }
+
+    @Benchmark
+    public Optional<Product> findById() {
+        return productsDao.findById(random.nextInt(products) + 1);
+    }
+
+    @Benchmark
+    public List<Product> findByName() {
+        return productsDao.findByName(name);
+    }
+
+    @Benchmark
+    public List<Product> findFirstPage() {
+        return productsDao.findPage(sort, null, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Product> findPageInTheMiddle() {
+        return productsDao.findPage(sort, middleOfCatalog, PAGE_SIZE);
+    }
+
+    @Benchmark
+    public List<Product> findPriceRange() {
+        long minPrice = random.nextInt(900_000);
+        return productsDao.findPriceRange("USD", minPrice, minPrice + 10_000, null, PAGE_SIZE);
+    }
+}
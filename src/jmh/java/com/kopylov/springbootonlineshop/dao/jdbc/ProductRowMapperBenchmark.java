@@ -0,0 +1,88 @@
+package com.kopylov.springbootonlineshop.dao.jdbc;
+
+import com.kopylov.springbootonlineshop.model.Product;
+import org.h2.tools.SimpleResultSet;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.SQLException;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Maps an in-memory result set shaped like {@code SELECT id, name, price, currency, creation_date, version FROM products},
+ * so only the row mapper is measured and not the driver or the network.
+ * <p>
+ * Run with {@code mvn -Pbenchmarks test-compile exec:exec -Djmh.args=ProductRowMapperBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductRowMapperBenchmark {
+
+    @Param({"10000", "1000000"})
+    private int rows;
+
+    private ProductsResultSet resultSet;
+
+    private final RowMapper<Product> beanPropertyRowMapper = new BeanPropertyRowMapper<>(Product.class);
+    private final RowMapper<Product> productRowMapper = new ProductRowMapper();
+
+    @Setup
+    public void setUp() {
+        resultSet = new ProductsResultSet();
+        resultSet.setAutoClose(false);
+        resultSet.addColumn("id", Types.BIGINT, 19, 0);
+        resultSet.addColumn("name", Types.VARCHAR, 20, 0);
+        resultSet.addColumn("price", Types.BIGINT, 19, 0);
+        resultSet.addColumn("currency", Types.VARCHAR, 3, 0);
+        resultSet.addColumn("creation_date", Types.TIMESTAMP, 29, 6);
+        resultSet.addColumn("version", Types.BIGINT, 19, 0);
+
+        LocalDateTime creationDate = LocalDateTime.of(2023, 9, 1, 10, 0);
+        for (int i = 0; i < rows; i++) {
+            resultSet.addRow((long) i, "Product " + (i % 1000), (long) (i % 100_000), "USD",
+                    creationDate.plusSeconds(i), 0L);
+        }
+    }
+
+    @Setup(Level.Invocation)
+    public void rewind() throws SQLException {
+        resultSet.beforeFirst();
+    }
+
+    @Benchmark
+    public void beanPropertyRowMapper(Blackhole blackhole) throws SQLException {
+        map(beanPropertyRowMapper, blackhole);
+    }
+
+    @Benchmark
+    public void productRowMapper(Blackhole blackhole) throws SQLException {
+        map(productRowMapper, blackhole);
+    }
+
+    private void map(RowMapper<Product> rowMapper, Blackhole blackhole) throws SQLException {
+        int rowNum = 0;
+        while (resultSet.next()) {
+            blackhole.consume(rowMapper.mapRow(resultSet, rowNum++));
+        }
+    }
+
+    /**
+     * {@link SimpleResultSet} does not implement {@code getObject(int, Class)}, which the PostgreSQL driver
+     * and both mappers use for {@code LocalDateTime}; without it the bean mapper would pay for an exception per row.
+     */
+    private static class ProductsResultSet extends SimpleResultSet {
+
+        @Override
+        public <T> T getObject(int columnIndex, Class<T> type) throws SQLException {
+            return type.cast(getObject(columnIndex));
+        }
+    }
+}
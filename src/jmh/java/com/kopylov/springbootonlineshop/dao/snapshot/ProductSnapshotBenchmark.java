@@ -0,0 +1,79 @@
+package com.kopylov.springbootonlineshop.dao.snapshot;
+
+import com.kopylov.springbootonlineshop.ProductFixtures;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Sorted listing and a 1% price range from the columnar snapshot against the per-request sort and filter they
+ * replace, plus the cost of applying one write to the snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductSnapshotBenchmark {
+
+    private static final long PRICE_RANGE_MIN = 500_000;
+    private static final long PRICE_RANGE_MAX = 510_000;
+    private static final int PRICE_RANGE_LIMIT = 50;
+
+    @Param({"1000", "100000"})
+    private int products;
+
+    @Param({"NAME", "PRICE", "DATE"})
+    private ProductSort sort;
+
+    private List<Product> catalog;
+    private ProductSnapshot snapshot;
+    private Product changed;
+
+    @Setup
+    public void setUp() {
+        catalog = ProductFixtures.products(products);
+        snapshot = ProductSnapshot.of(1, catalog);
+        changed = catalog.get(products / 2).toBuilder().name("Changed").price(1).build();
+    }
+
+    @Benchmark
+    public List<Product> comparatorSort() {
+        Comparator<Product> comparator = switch (sort) {
+            case NAME -> Comparator.comparing(Product::getName);
+            case PRICE -> Comparator.comparing(Product::getPrice);
+            case DATE -> Comparator.comparing(Product::getCreationDate);
+        };
+        return catalog.stream().sorted(comparator).collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Product> snapshotWalk() {
+        return snapshot.sorted(sort);
+    }
+
+    @Benchmark
+    public List<Product> filterPriceRange() {
+        return catalog.stream()
+                .filter(product -> product.getPrice() >= PRICE_RANGE_MIN && product.getPrice() <= PRICE_RANGE_MAX)
+                .sorted(Comparator.comparingLong(Product::getPrice).thenComparingLong(Product::getId))
+                .limit(PRICE_RANGE_LIMIT)
+                .collect(Collectors.toList());
+    }
+
+    @Benchmark
+    public List<Product> snapshotPriceRange() {
+        return snapshot.priceRange("USD", PRICE_RANGE_MIN, PRICE_RANGE_MAX, null, PRICE_RANGE_LIMIT);
+    }
+
+    @Benchmark
+    public ProductSnapshot snapshotUpdate() {
+        return snapshot.withProduct(2, changed);
+    }
+}
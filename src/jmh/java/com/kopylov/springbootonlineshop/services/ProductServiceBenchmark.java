@@ -0,0 +1,88 @@
+package com.kopylov.springbootonlineshop.services;
+
+import com.kopylov.springbootonlineshop.ProductFixtures;
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dao.snapshot.SnapshotProductsDao;
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * In-memory part of the listing path: {@link DefaultProductService#findAll(String)} over the product snapshot,
+ * whose delegate returns a prepared list, the comparator sort that the snapshot replaced, and the entity to DTO
+ * mapping. The snapshot on its own is measured by {@code ProductSnapshotBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ProductServiceBenchmark {
+
+    @Param({"1000", "100000"})
+    private int products;
+
+    @Param({"name", "price", "date"})
+    private String sort;
+
+    private DefaultProductService productService;
+    private List<Product> catalog;
+    private Product[] catalogArray;
+
+    @Setup
+    public void setUp() {
+        catalog = ProductFixtures.products(products);
+        catalogArray = catalog.toArray(new Product[0]);
+
+        ProductsDao delegate = mock(ProductsDao.class);
+        when(delegate.findAll()).thenReturn(catalog);
+        when(delegate.findCatalogVersion()).thenReturn(Optional.of(new CatalogVersion(1, Instant.now())));
+        ProductsDao productsDao = new SnapshotProductsDao(delegate,
+                new TransactionTemplate(mock(PlatformTransactionManager.class)));
+        productService = new DefaultProductService(productsDao, null);
+    }
+
+    @Benchmark
+    public List<Product> findAll() {
+        return productService.findAll(sort);
+    }
+
+    /**
+     * The per-request sort that {@link #findAll} used to do before the snapshot kept the orders.
+     */
+    @Benchmark
+    public Product[] sortWithComparatorByCriteria() {
+        Comparator<Product> comparator = switch (ProductSort.fromCriteria(sort)) {
+            case NAME -> Comparator.comparing(Product::getName);
+            case PRICE -> Comparator.comparingLong(Product::getPrice);
+            case DATE -> Comparator.comparing(Product::getCreationDate);
+        };
+        Product[] sorted = Arrays.copyOf(catalogArray, catalogArray.length);
+        Arrays.sort(sorted, comparator);
+        return sorted;
+    }
+
+    @Benchmark
+    public void mapToDto(Blackhole blackhole) {
+        for (Product product : catalog) {
+            ProductDto productDto = productService.mapToDto(product.getId(), product);
+            blackhole.consume(productDto);
+        }
+    }
+}
@@ -2,8 +2,10 @@ package com.kopylov.springbootonlineshop;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
 
 @SpringBootApplication
+@ImportRuntimeHints(SpringBootOnlineShopRuntimeHints.class)
 public class SpringBootOnlineShop {
 
 	public static void main(String[] args) {
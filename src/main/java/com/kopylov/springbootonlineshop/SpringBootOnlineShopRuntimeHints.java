@@ -0,0 +1,42 @@
+package com.kopylov.springbootonlineshop;
+
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductChange;
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+import org.springframework.aot.hint.TypeReference;
+
+/**
+ * Reflection and resource hints for what Spring AOT cannot find on its own, for the JVM in AOT mode and for a
+ * native image. Request and response bodies of controller methods are covered by Spring; these are the types that
+ * reach Jackson or FreeMarker some other way:
+ * <ul>
+ *     <li>products bound from forms and shown by the FreeMarker pages, which read their getters reflectively;</li>
+ *     <li>products written to the NDJSON export, changes sent on the SSE feed, and write-behind journal entries,
+ *     all serialized through an {@code ObjectMapper} directly;</li>
+ *     <li>the page templates and the CDDL schema under {@code static}.</li>
+ * </ul>
+ * Lombok builders need nothing: they are plain generated code, called directly.
+ */
+public class SpringBootOnlineShopRuntimeHints implements RuntimeHintsRegistrar {
+
+    static final String WRITE_BEHIND_JOURNAL_ENTRY =
+            "com.kopylov.springbootonlineshop.services.writebehind.WriteBehindJournal$Entry";
+
+    private final BindingReflectionHintsRegistrar bindingHints = new BindingReflectionHintsRegistrar();
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        bindingHints.registerReflectionHints(hints.reflection(), Product.class, ProductDto.class, ProductChange.class);
+        // Package-private, so it is named rather than listed with the others; Jackson sets its fields directly.
+        hints.reflection().registerType(TypeReference.of(WRITE_BEHIND_JOURNAL_ENTRY),
+                MemberCategory.INVOKE_DECLARED_CONSTRUCTORS, MemberCategory.DECLARED_FIELDS,
+                MemberCategory.INVOKE_DECLARED_METHODS);
+        hints.resources()
+                .registerPattern("templates/*.html")
+                .registerPattern("static/schema/*");
+    }
+}
@@ -0,0 +1,62 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Writes {@link LocalDateTime} as microseconds since the epoch. Product dates are wall-clock times of the server's
+ * zone without an offset, in the JSON string as in the {@code TIMESTAMP} column, and the count reads those fields as
+ * UTC rather than converting them, so both representations carry the same value. In the binary formats that is an
+ * integer of at most nine bytes instead of a 26-character string.
+ */
+public final class EpochMicros {
+
+    private EpochMicros() {
+    }
+
+    public static long toEpochMicros(LocalDateTime dateTime) {
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    public static LocalDateTime toLocalDateTime(long epochMicros) {
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000),
+                (int) Math.floorMod(epochMicros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    public static class Serializer extends StdScalarSerializer<LocalDateTime> {
+
+        public Serializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public void serialize(LocalDateTime value, JsonGenerator generator, SerializerProvider provider)
+                throws IOException {
+            generator.writeNumber(toEpochMicros(value));
+        }
+    }
+
+    public static class Deserializer extends StdScalarDeserializer<LocalDateTime> {
+
+        public Deserializer() {
+            super(LocalDateTime.class);
+        }
+
+        @Override
+        public LocalDateTime deserialize(JsonParser parser, DeserializationContext context) throws IOException {
+            if (!parser.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+                return (LocalDateTime) context.handleUnexpectedToken(LocalDateTime.class, parser);
+            }
+            return toLocalDateTime(parser.getLongValue());
+        }
+    }
+}
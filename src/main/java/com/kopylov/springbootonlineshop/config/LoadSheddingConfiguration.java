@@ -0,0 +1,49 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.kopylov.springbootonlineshop.controller.limits.AdaptiveConcurrencyLimiter;
+import com.kopylov.springbootonlineshop.controller.limits.LoadSheddingFilter;
+import com.kopylov.springbootonlineshop.controller.limits.TokenBucketRateLimiter;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Puts a {@link LoadSheddingFilter} in front of the product endpoints. Per-client rate limits are off unless
+ * {@code products.rate-limit.enabled} is set, since behind a proxy without {@code products.rate-limit.client-header}
+ * every request looks like the same client. The adaptive concurrency limit is off unless
+ * {@code products.load-shedding.enabled} is set, like the other optional features.
+ */
+@Configuration
+public class LoadSheddingConfiguration {
+
+    @Bean
+    public LoadSheddingFilter loadSheddingFilter(
+            @Value("${products.rate-limit.enabled:false}") boolean rateLimitEnabled,
+            @Value("${products.rate-limit.read.requests-per-second:100}") double readRate,
+            @Value("${products.rate-limit.read.burst:200}") int readBurst,
+            @Value("${products.rate-limit.write.requests-per-second:20}") double writeRate,
+            @Value("${products.rate-limit.write.burst:40}") int writeBurst,
+            @Value("${products.rate-limit.client-header:}") String clientHeader,
+            @Value("${products.rate-limit.idle-timeout:10m}") Duration idleTimeout,
+            @Value("${products.rate-limit.maximum-clients:100000}") long maximumClients,
+            @Value("${products.load-shedding.enabled:false}") boolean loadSheddingEnabled,
+            @Value("${products.load-shedding.initial-limit:20}") int initialLimit,
+            @Value("${products.load-shedding.min-limit:4}") int minLimit,
+            @Value("${products.load-shedding.max-limit:200}") int maxLimit,
+            @Value("${products.load-shedding.queue-size:50}") int queueSize,
+            @Value("${products.load-shedding.queue-timeout:50ms}") Duration queueTimeout,
+            @Value("${products.load-shedding.retry-after:1s}") Duration retryAfter) {
+        TokenBucketRateLimiter readLimiter = null;
+        TokenBucketRateLimiter writeLimiter = null;
+        if (rateLimitEnabled) {
+            readLimiter = new TokenBucketRateLimiter(readRate, readBurst, idleTimeout, maximumClients);
+            writeLimiter = new TokenBucketRateLimiter(writeRate, writeBurst, idleTimeout, maximumClients);
+        }
+        AdaptiveConcurrencyLimiter concurrencyLimiter = loadSheddingEnabled
+                ? new AdaptiveConcurrencyLimiter(initialLimit, minLimit, maxLimit, queueSize, queueTimeout)
+                : null;
+        return new LoadSheddingFilter(readLimiter, writeLimiter, concurrencyLimiter, clientHeader, retryAfter);
+    }
+}
@@ -0,0 +1,21 @@
+package com.kopylov.springbootonlineshop.config;
+
+import org.springframework.boot.autoconfigure.flyway.FlywayConfigurationCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.Map;
+
+/**
+ * Flyway applies {@code db/migration} at startup. Its PostgreSQL lock is taken with a session-level advisory lock
+ * instead of the default transaction-level one: a migration running {@code CREATE INDEX CONCURRENTLY} waits for
+ * every open transaction to finish, including the one holding that lock, and would never complete.
+ */
+@Configuration
+public class MigrationConfiguration {
+
+    @Bean
+    public FlywayConfigurationCustomizer sessionLevelMigrationLock() {
+        return configuration -> configuration.configuration(Map.of("flyway.postgresql.transactional.lock", "false"));
+    }
+}
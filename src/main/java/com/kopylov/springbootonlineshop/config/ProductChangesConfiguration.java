@@ -0,0 +1,26 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.kopylov.springbootonlineshop.dao.ProductChangesDao;
+import com.kopylov.springbootonlineshop.services.changes.ProductChangeFeed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+
+/**
+ * Serves the {@code product_changes} outbox, filled by the catalog version trigger, as a change feed.
+ */
+@Configuration
+public class ProductChangesConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ProductChangeFeed productChangeFeed(ProductChangesDao productChangesDao,
+                                               @Value("${products.changes.page-size:500}") int pageSize,
+                                               @Value("${products.changes.poll-interval:500ms}") Duration pollInterval,
+                                               @Value("${products.changes.heartbeat:15s}") Duration heartbeat,
+                                               @Value("${products.changes.retention:7d}") Duration retention,
+                                               @Value("${products.changes.max-subscribers:100}") int maxSubscribers) {
+        return new ProductChangeFeed(productChangesDao, pageSize, pollInterval, heartbeat, retention, maxSubscribers);
+    }
+}
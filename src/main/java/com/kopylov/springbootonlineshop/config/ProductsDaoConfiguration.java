@@ -0,0 +1,60 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dao.cache.CachingProductsDao;
+import com.kopylov.springbootonlineshop.dao.cache.ProductCacheEndpoint;
+import com.kopylov.springbootonlineshop.dao.jdbc.JdbcProductsDao;
+import com.kopylov.springbootonlineshop.dao.snapshot.SnapshotProductsDao;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+
+/**
+ * Stacks the optional DAO decorators as cache, then snapshot, then JDBC, and exposes the outermost enabled one as
+ * the primary {@link ProductsDao}.
+ */
+@Configuration
+public class ProductsDaoConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "products.snapshot.enabled", havingValue = "true")
+    public SnapshotProductsDao snapshotProductsDao(JdbcProductsDao jdbcProductsDao,
+                                                   PlatformTransactionManager transactionManager) {
+        return new SnapshotProductsDao(jdbcProductsDao, new TransactionTemplate(transactionManager));
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "products.cache.enabled", havingValue = "true")
+    public CachingProductsDao cachingProductsDao(JdbcProductsDao jdbcProductsDao,
+                                                 ObjectProvider<SnapshotProductsDao> snapshotProductsDao,
+                                                 @Value("${products.cache.maximum-size:10000}") long maximumSize,
+                                                 @Value("${products.cache.ttl:60s}") Duration ttl) {
+        ProductsDao delegate = snapshotProductsDao.getIfAvailable();
+        return new CachingProductsDao(delegate != null ? delegate : jdbcProductsDao, maximumSize, ttl);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "products.cache.enabled", havingValue = "true")
+    public ProductCacheEndpoint productCacheEndpoint(CachingProductsDao cachingProductsDao) {
+        return new ProductCacheEndpoint(cachingProductsDao);
+    }
+
+    @Bean
+    @Primary
+    public ProductsDao productsDao(JdbcProductsDao jdbcProductsDao,
+                                   ObjectProvider<SnapshotProductsDao> snapshotProductsDao,
+                                   ObjectProvider<CachingProductsDao> cachingProductsDao) {
+        ProductsDao productsDao = cachingProductsDao.getIfAvailable();
+        if (productsDao == null) {
+            productsDao = snapshotProductsDao.getIfAvailable();
+        }
+        return productsDao != null ? productsDao : jdbcProductsDao;
+    }
+}
@@ -0,0 +1,63 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.kopylov.springbootonlineshop.controller.ReadYourWritesFilter;
+import com.kopylov.springbootonlineshop.dao.routing.ReadReplicas;
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Sends {@code JdbcProductsDao} queries to the read replicas listed in {@code products.replicas.urls}, one pool per
+ * replica, while writes and transactions stay on the primary datasource. Replica pools wait only
+ * {@code products.replicas.connection-timeout} for a connection before the read moves on to the next replica,
+ * and a replica that timed out is left alone for {@code products.replicas.retry-after}. The pools are not
+ * datasource beans, so they are registered with Micrometer here, under their pool names.
+ */
+@Configuration
+@ConditionalOnProperty(name = "products.replicas.enabled", havingValue = "true")
+public class ReadReplicaConfiguration {
+
+    @Bean
+    public ReadReplicas readReplicas(DataSource dataSource, ObjectProvider<MeterRegistry> meterRegistry,
+                                     @Value("${products.replicas.urls}") List<String> urls,
+                                     @Value("${products.replicas.username:${spring.datasource.username}}") String username,
+                                     @Value("${products.replicas.password:${spring.datasource.password}}") String password,
+                                     @Value("${products.replicas.maximum-pool-size:10}") int maximumPoolSize,
+                                     @Value("${products.replicas.connection-timeout:1s}") Duration connectionTimeout,
+                                     @Value("${products.replicas.retry-after:10s}") Duration retryAfter) {
+        List<HikariDataSource> pools = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            HikariDataSource pool = DataSourceBuilder.create()
+                    .type(HikariDataSource.class)
+                    .url(url)
+                    .username(username)
+                    .password(password)
+                    .build();
+            pool.setPoolName("replica-" + pools.size());
+            pool.setMaximumPoolSize(maximumPoolSize);
+            pool.setConnectionTimeout(connectionTimeout.toMillis());
+            pool.setReadOnly(true);
+            meterRegistry.ifAvailable(registry ->
+                    pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(registry)));
+            pools.add(pool);
+        }
+        return new ReadReplicas(dataSource, pools, retryAfter);
+    }
+
+    @Bean
+    public ReadYourWritesFilter readYourWritesFilter(
+            @Value("${products.replicas.read-your-writes-window:5s}") Duration window) {
+        return new ReadYourWritesFilter(window);
+    }
+}
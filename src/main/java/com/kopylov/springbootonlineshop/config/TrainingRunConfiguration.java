@@ -0,0 +1,28 @@
+package com.kopylov.springbootonlineshop.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationListener;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * With {@code products.training-run} set, the application shuts down as soon as it has started. The {@code cds}
+ * build profile runs it that way once under {@code -XX:ArchiveClassesAtExit}, so the class data sharing archive
+ * holds every class a real startup loads. The property is read at runtime rather than through a condition, which
+ * AOT processing would settle at build time.
+ */
+@Configuration
+public class TrainingRunConfiguration {
+
+    @Bean
+    public ApplicationListener<ApplicationReadyEvent> trainingRunExit(
+            @Value("${products.training-run:false}") boolean trainingRun) {
+        return event -> {
+            if (trainingRun) {
+                System.exit(SpringApplication.exit(event.getApplicationContext()));
+            }
+        };
+    }
+}
@@ -0,0 +1,40 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.converter.cbor.MappingJackson2CborHttpMessageConverter;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.http.converter.smile.MappingJackson2SmileHttpMessageConverter;
+
+import java.time.LocalDateTime;
+
+/**
+ * Binary representations of the API next to JSON, picked by the {@code Accept} and {@code Content-Type} headers:
+ * {@code application/cbor}, described by {@code /schema/product.cddl}, and {@code application/x-jackson-smile},
+ * which also back-references repeated property names. Both use the application's Jackson settings, except that
+ * dates are epoch microseconds rather than ISO strings.
+ */
+@Configuration
+public class WireFormatConfiguration {
+
+    @Bean
+    public MappingJackson2CborHttpMessageConverter cborHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2CborHttpMessageConverter(binaryObjectMapper(builder, new CBORFactory()));
+    }
+
+    @Bean
+    public MappingJackson2SmileHttpMessageConverter smileHttpMessageConverter(Jackson2ObjectMapperBuilder builder) {
+        return new MappingJackson2SmileHttpMessageConverter(binaryObjectMapper(builder, new SmileFactory()));
+    }
+
+    static ObjectMapper binaryObjectMapper(Jackson2ObjectMapperBuilder builder, JsonFactory factory) {
+        return builder.factory(factory)
+                .serializerByType(LocalDateTime.class, new EpochMicros.Serializer())
+                .deserializerByType(LocalDateTime.class, new EpochMicros.Deserializer())
+                .build();
+    }
+}
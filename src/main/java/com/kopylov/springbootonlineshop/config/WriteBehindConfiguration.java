@@ -0,0 +1,36 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.services.writebehind.ProductWriteBehind;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * Turns {@code POST /products/create} into a write-behind create answered with 202 Accepted, see
+ * {@link ProductWriteBehind}. The journal at {@code products.write-behind.journal} must survive restarts for
+ * accepted products to survive them.
+ */
+@Configuration
+@ConditionalOnProperty(name = "products.write-behind.enabled", havingValue = "true")
+public class WriteBehindConfiguration {
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public ProductWriteBehind productWriteBehind(ProductsDao productsDao, ObjectMapper objectMapper,
+                                                 @Value("${products.write-behind.journal:write-behind/products.journal}") Path journal,
+                                                 @Value("${products.write-behind.fsync:true}") boolean fsync,
+                                                 @Value("${products.write-behind.queue-capacity:10000}") int capacity,
+                                                 @Value("${products.write-behind.batch-size:500}") int batchSize,
+                                                 @Value("${products.write-behind.id-block-size:1000}") int idBlockSize,
+                                                 @Value("${products.write-behind.offer-timeout:100ms}") Duration offerTimeout,
+                                                 @Value("${products.write-behind.max-retry-delay:30s}") Duration maxRetryDelay,
+                                                 @Value("${products.write-behind.shutdown-timeout:30s}") Duration shutdownTimeout) {
+        return new ProductWriteBehind(productsDao, journal, objectMapper, fsync, capacity, batchSize, idBlockSize,
+                offerTimeout, maxRetryDelay, shutdownTimeout);
+    }
+}
@@ -0,0 +1,96 @@
+package com.kopylov.springbootonlineshop.controller;
+
+import com.kopylov.springbootonlineshop.exceptions.TooManySubscribersException;
+import com.kopylov.springbootonlineshop.model.ProductChange;
+import com.kopylov.springbootonlineshop.services.changes.ProductChangeFeed;
+import com.kopylov.springbootonlineshop.services.changes.ProductChangeListener;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.OptionalLong;
+
+/**
+ * Server-Sent Events feed of product changes. Every {@code product-change} event carries its offset as the event
+ * id, so a reconnecting {@code EventSource} resumes from {@code Last-Event-ID}; {@code ?after=} does the same for
+ * the first connection. A {@code resync} event means the offset could not be resumed and the catalog has to be
+ * reloaded.
+ */
+@RestController
+@RequestMapping("/products/changes")
+public class ProductChangesController {
+
+    private static final String LAST_EVENT_ID = "Last-Event-ID";
+
+    private final ProductChangeFeed productChangeFeed;
+    private final Duration connectionTimeout;
+
+    public ProductChangesController(ProductChangeFeed productChangeFeed,
+                                    @Value("${products.changes.connection-timeout:30m}") Duration connectionTimeout) {
+        this.productChangeFeed = productChangeFeed;
+        this.connectionTimeout = connectionTimeout;
+    }
+
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> subscribe(@RequestHeader(value = LAST_EVENT_ID, required = false) String lastEventId,
+                                                @RequestParam(value = "after", required = false) Long after) {
+        OptionalLong offset;
+        try {
+            offset = lastEventId != null ? OptionalLong.of(Long.parseLong(lastEventId.strip()))
+                    : after != null ? OptionalLong.of(after) : OptionalLong.empty();
+        } catch (NumberFormatException e) {
+            return ResponseEntity.badRequest().build();
+        }
+
+        SseEmitter emitter = new SseEmitter(connectionTimeout.toMillis());
+        ProductChangeFeed.Subscription subscription;
+        try {
+            subscription = productChangeFeed.subscribe(offset, new EmitterListener(emitter));
+        } catch (TooManySubscribersException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "5").build();
+        } catch (IOException e) {
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
+        }
+        emitter.onCompletion(() -> productChangeFeed.unsubscribe(subscription));
+        emitter.onTimeout(() -> productChangeFeed.unsubscribe(subscription));
+        emitter.onError(error -> productChangeFeed.unsubscribe(subscription));
+        return ResponseEntity.ok().cacheControl(CacheControl.noStore()).body(emitter);
+    }
+
+    private static final class EmitterListener implements ProductChangeListener {
+
+        private final SseEmitter emitter;
+
+        private EmitterListener(SseEmitter emitter) {
+            this.emitter = emitter;
+        }
+
+        @Override
+        public void onChanges(List<ProductChange> changes) throws IOException {
+            for (ProductChange change : changes) {
+                emitter.send(SseEmitter.event()
+                        .id(Long.toString(change.getOffset()))
+                        .name("product-change")
+                        .data(change, MediaType.APPLICATION_JSON));
+            }
+        }
+
+        @Override
+        public void onResync(long offset) throws IOException {
+            emitter.send(SseEmitter.event().id(Long.toString(offset)).name("resync").data(offset));
+        }
+
+        @Override
+        public void onHeartbeat() throws IOException {
+            emitter.send(SseEmitter.event().comment("heartbeat"));
+        }
+    }
+}
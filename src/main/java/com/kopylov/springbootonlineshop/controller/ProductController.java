@@ -1,41 +1,140 @@
 package com.kopylov.springbootonlineshop.controller;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kopylov.springbootonlineshop.controller.export.ProductExportFormat;
+import com.kopylov.springbootonlineshop.controller.export.ProductExportWriter;
+import com.kopylov.springbootonlineshop.dto.BulkItemResult;
 import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductPage;
+import com.kopylov.springbootonlineshop.dto.ProductWriteStatus;
+import com.kopylov.springbootonlineshop.exceptions.InvalidCursorException;
 import com.kopylov.springbootonlineshop.exceptions.ProductNotFoundException;
+import com.kopylov.springbootonlineshop.exceptions.ProductVersionConflictException;
+import com.kopylov.springbootonlineshop.exceptions.WriteBehindRejectedException;
 import com.kopylov.springbootonlineshop.model.Product;
 import com.kopylov.springbootonlineshop.services.ProductService;
+import com.kopylov.springbootonlineshop.services.writebehind.ProductWriteBehind;
 import jakarta.validation.Valid;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.net.URI;
+import java.time.Duration;
 import java.util.List;
+import java.util.OptionalLong;
 
 @RestController
 @RequestMapping("/products")
 public class ProductController {
 
     private final ProductService productService;
+    private final ObjectMapper objectMapper;
+    private final CacheControl cacheControl;
+    private final ProductWriteBehind writeBehind;
 
-    public ProductController(ProductService productService) {
+    public ProductController(ProductService productService, ObjectMapper objectMapper,
+                             ObjectProvider<ProductWriteBehind> writeBehind,
+                             @Value("${products.http.cache.max-age:0s}") Duration maxAge,
+                             @Value("${products.http.cache.shared-max-age:5s}") Duration sharedMaxAge,
+                             @Value("${products.http.cache.stale-while-revalidate:30s}") Duration staleWhileRevalidate) {
         this.productService = productService;
+        this.objectMapper = objectMapper;
+        this.writeBehind = writeBehind.getIfAvailable();
+        this.cacheControl = CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .sMaxAge(sharedMaxAge)
+                .staleWhileRevalidate(staleWhileRevalidate);
     }
 
     @GetMapping("")
-    public ResponseEntity<List<Product>> getProducts(@RequestParam(value = "sort", required = false) String sort) {
+    public ResponseEntity<List<Product>> getProducts(@RequestParam(value = "sort", required = false) String sort,
+                                                     WebRequest request) {
+        if (catalogNotModified(request)) {
+            return notModified();
+        }
         List<Product> allProducts = productService.findAll(sort);
         if (allProducts.isEmpty()) {
-            return ResponseEntity.noContent().build();
+            return ResponseEntity.noContent().cacheControl(cacheControl).build();
+        }
+        return ResponseEntity.ok().cacheControl(cacheControl).varyBy(HttpHeaders.ACCEPT).body(allProducts);
+    }
+
+    @GetMapping(value = "", params = {"limit", "!search"})
+    public ResponseEntity<ProductPage> getProductsPage(@RequestParam(value = "sort", required = false) String sort,
+                                                       @RequestParam(value = "cursor", required = false) String cursor,
+                                                       @RequestParam("limit") int limit,
+                                                       WebRequest request) {
+        try {
+            if (catalogNotModified(request)) {
+                return notModified();
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(productService.findPage(sort, cursor, limit));
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
         }
-        return ResponseEntity.ok(productService.findAll(sort));
+    }
+
+    @GetMapping(value = "", params = {"minPrice", "maxPrice", "!search"})
+    public ResponseEntity<ProductPage> getProductsInPriceRange(@RequestParam("minPrice") long minPrice,
+                                                               @RequestParam("maxPrice") long maxPrice,
+                                                               @RequestParam(value = "currency", required = false) String currency,
+                                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                                               @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                                               WebRequest request) {
+        try {
+            if (catalogNotModified(request)) {
+                return notModified();
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(productService.findPriceRange(minPrice, maxPrice, currency, cursor, limit));
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
+        }
+    }
+
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam(value = "format", defaultValue = "ndjson") String format) {
+        return ProductExportFormat.fromName(format)
+                .map(exportFormat -> ResponseEntity.ok()
+                        .contentType(exportFormat.getMediaType())
+                        .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                                .filename(exportFormat.getFileName()).build().toString())
+                        .body(exportBody(exportFormat)))
+                .orElseGet(() -> ResponseEntity.badRequest().build());
     }
 
     @GetMapping(params = "search")
-    public String getSearchPage(@RequestParam(value = "search", required = false) String name, Model model) {
-        model.addAttribute("Products", productService.getByName(name));
-        return "search";
+    public ResponseEntity<ProductPage> search(@RequestParam("search") String query,
+                                              @RequestParam(value = "cursor", required = false) String cursor,
+                                              @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                              WebRequest request) {
+        try {
+            if (catalogNotModified(request)) {
+                return notModified();
+            }
+            return ResponseEntity.ok()
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(productService.search(query, cursor, limit));
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
+        }
     }
 
     @GetMapping("/")
@@ -47,34 +146,150 @@ public class ProductController {
     @PostMapping("/create")
     @ResponseStatus(HttpStatus.CREATED)
     public ResponseEntity<ProductDto> add(@RequestBody @Valid ProductDto productDto) {
-        ProductDto createdProduct = productService.createProduct(productDto);
+        ProductDto createdProduct;
+        try {
+            createdProduct = productService.createProduct(productDto);
+        } catch (WriteBehindRejectedException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                    .header(HttpHeaders.RETRY_AFTER, "1")
+                    .build();
+        }
+        if (writeBehind != null) {
+            return ResponseEntity.accepted()
+                    .location(URI.create("/products/writes/" + createdProduct.getId()))
+                    .body(createdProduct);
+        }
         URI uri = URI.create("/create/" + createdProduct.getId());
         return ResponseEntity.created(uri).body(createdProduct);
         //return new ResponseEntity<>(productService.createProduct(productDto), HttpStatus.CREATED);
     }
 
+    @GetMapping("/writes/{id}")
+    public ResponseEntity<ProductWriteStatus> getWriteStatus(@PathVariable long id) {
+        if (writeBehind == null) {
+            return ResponseEntity.notFound().build();
+        }
+        return writeBehind.getStatus(id)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/bulk/create")
+    public ResponseEntity<List<BulkItemResult>> addAll(@RequestBody List<ProductDto> productDtos) {
+        return ResponseEntity.ok(productService.createProducts(productDtos));
+    }
+
     @GetMapping("/{id}")
     public ResponseEntity<ProductDto> getById(@PathVariable long id) {
         try {
-            return ResponseEntity.ok(productService.getById(id));
+            ProductDto product = productService.getById(id);
+            return ResponseEntity.ok()
+                    .eTag(eTag(product))
+                    .cacheControl(cacheControl)
+                    .varyBy(HttpHeaders.ACCEPT)
+                    .body(product);
         } catch (ProductNotFoundException e) {
             return ResponseEntity.notFound().build();
         }
     }
 
     @PutMapping("/{id}/update")
-    public ResponseEntity<ProductDto> update(@PathVariable long id, @RequestBody @Valid ProductDto productDto) {
-        try{
-            ProductDto updatedProduct = productService.update(id, productDto);
-            return ResponseEntity.ok(updatedProduct);
-        }catch (ProductNotFoundException e){
+    public ResponseEntity<ProductDto> update(@PathVariable long id, @RequestBody @Valid ProductDto productDto,
+                                             @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        try {
+            ProductDto updatedProduct;
+            if (ifMatch == null || ifMatch.strip().equals("*")) {
+                updatedProduct = productService.update(id, productDto);
+            } else {
+                OptionalLong expectedVersion = parseVersion(ifMatch);
+                if (expectedVersion.isEmpty()) {
+                    return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+                }
+                updatedProduct = productService.update(id, productDto, expectedVersion.getAsLong());
+            }
+            return ResponseEntity.ok().eTag(eTag(updatedProduct)).body(updatedProduct);
+        } catch (ProductNotFoundException e) {
             return ResponseEntity.notFound().build();
+        } catch (ProductVersionConflictException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
         }
     }
 
+    @PutMapping("/bulk/update")
+    public ResponseEntity<List<BulkItemResult>> updateAll(@RequestBody List<ProductDto> productDtos) {
+        return ResponseEntity.ok(productService.updateProducts(productDtos));
+    }
+
     @DeleteMapping("/{id}/delete")
     public ResponseEntity<String> delete(@PathVariable("id") long id) {
         productService.delete(id);
         return new ResponseEntity<>("Product delete", HttpStatus.OK);
     }
+
+    @PostMapping("/bulk/delete")
+    public ResponseEntity<List<BulkItemResult>> deleteAll(@RequestBody List<Long> ids) {
+        return ResponseEntity.ok(productService.deleteProducts(ids));
+    }
+
+    /**
+     * Weak for the same reasons as the catalog ETag: one version covers every representation of the product, and a
+     * strong ETag would keep Tomcat from compressing the response.
+     */
+    private String eTag(ProductDto productDto) {
+        return "W/\"" + productDto.getVersion() + "\"";
+    }
+
+    /**
+     * Validates If-None-Match / If-Modified-Since against the catalog version before any product is read, and
+     * sets ETag and Last-Modified on the response. The version is read first, so a write racing with the listing
+     * can only make the body newer than its validator, which costs the client one extra full response. The ETag is
+     * weak because it is shared by the JSON, CBOR and Smile representations, and because Tomcat only compresses
+     * responses without a strong ETag.
+     */
+    private boolean catalogNotModified(WebRequest request) {
+        return productService.getCatalogVersion()
+                .map(catalogVersion -> request.checkNotModified("W/\"" + catalogVersion.getVersion() + "\"",
+                        catalogVersion.getLastModified().toEpochMilli()))
+                .orElse(false);
+    }
+
+    private <T> ResponseEntity<T> notModified() {
+        return ResponseEntity.status(HttpStatus.NOT_MODIFIED)
+                .cacheControl(cacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .build();
+    }
+
+    /**
+     * Reads the version out of an If-Match value. The weak form this controller sends is accepted as well as the
+     * strong one, since the version alone decides whether the update applies, whatever the representation.
+     */
+    private OptionalLong parseVersion(String ifMatch) {
+        String eTag = ifMatch.strip();
+        if (eTag.startsWith("W/")) {
+            eTag = eTag.substring(2);
+        }
+        if (eTag.length() < 2 || eTag.charAt(0) != '"' || eTag.charAt(eTag.length() - 1) != '"') {
+            return OptionalLong.empty();
+        }
+        try {
+            return OptionalLong.of(Long.parseLong(eTag.substring(1, eTag.length() - 1)));
+        } catch (NumberFormatException e) {
+            return OptionalLong.empty();
+        }
+    }
+
+    private StreamingResponseBody exportBody(ProductExportFormat exportFormat) {
+        return outputStream -> {
+            try (ProductExportWriter writer = exportFormat.createWriter(outputStream, objectMapper)) {
+                productService.exportAll(product -> {
+                    try {
+                        writer.write(product);
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+            }
+        };
+    }
 }
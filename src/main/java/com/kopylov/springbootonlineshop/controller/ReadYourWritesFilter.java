@@ -0,0 +1,69 @@
+package com.kopylov.springbootonlineshop.controller;
+
+import com.kopylov.springbootonlineshop.dao.routing.ReadRoutingContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.ResponseCookie;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Set;
+
+/**
+ * Opens a {@link ReadRoutingContext} per request. Requests that may write are routed to the primary and leave a
+ * short-lived cookie behind; while the client still sends it, its reads stay on the primary too, which covers
+ * replication lag right after its own writes. Clients that do not keep cookies get replica reads straight away.
+ */
+public class ReadYourWritesFilter extends OncePerRequestFilter {
+
+    static final String COOKIE_NAME = "products-recent-write";
+
+    private static final Set<String> SAFE_METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name(),
+            HttpMethod.OPTIONS.name());
+
+    private final Duration window;
+
+    public ReadYourWritesFilter(Duration window) {
+        this.window = window;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        boolean write = !SAFE_METHODS.contains(request.getMethod());
+        if (write) {
+            response.addHeader(HttpHeaders.SET_COOKIE, ResponseCookie.from(COOKIE_NAME, "1")
+                    .maxAge(window)
+                    .path("/")
+                    .httpOnly(true)
+                    .sameSite("Lax")
+                    .build()
+                    .toString());
+        }
+        ReadRoutingContext.open(write || hasRecentWrite(request));
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ReadRoutingContext.close();
+        }
+    }
+
+    private boolean hasRecentWrite(HttpServletRequest request) {
+        Cookie[] cookies = request.getCookies();
+        if (cookies == null) {
+            return false;
+        }
+        for (Cookie cookie : cookies) {
+            if (COOKIE_NAME.equals(cookie.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,72 @@
+package com.kopylov.springbootonlineshop.controller.export;
+
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Writes prices as decimal amounts in their currency, for spreadsheets, where the JSON formats carry minor units.
+ */
+class CsvProductExportWriter implements ProductExportWriter {
+
+    private static final String HEADER = "id,name,price,currency,creation_date";
+
+    private final Writer writer;
+    private boolean headerWritten;
+
+    CsvProductExportWriter(OutputStream outputStream) {
+        this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    }
+
+    @Override
+    public void write(Product product) throws IOException {
+        writeHeaderIfNeeded();
+        writer.write(Long.toString(product.getId()));
+        writer.write(',');
+        writeEscaped(product.getName());
+        writer.write(',');
+        writer.write(Money.toDecimal(product.getPrice(), product.getCurrency()).toPlainString());
+        writer.write(',');
+        if (product.getCurrency() != null) {
+            writer.write(product.getCurrency());
+        }
+        writer.write(',');
+        if (product.getCreationDate() != null) {
+            writer.write(product.getCreationDate().toString());
+        }
+        writer.write('\n');
+    }
+
+    @Override
+    public void close() throws IOException {
+        writeHeaderIfNeeded();
+        writer.flush();
+    }
+
+    private void writeHeaderIfNeeded() throws IOException {
+        if (!headerWritten) {
+            writer.write(HEADER);
+            writer.write('\n');
+            headerWritten = true;
+        }
+    }
+
+    private void writeEscaped(String value) throws IOException {
+        if (value == null) {
+            return;
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            writer.write(value);
+            return;
+        }
+        writer.write('"');
+        writer.write(value.replace("\"", "\"\""));
+        writer.write('"');
+    }
+}
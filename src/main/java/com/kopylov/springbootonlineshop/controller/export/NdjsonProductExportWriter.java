@@ -0,0 +1,31 @@
+package com.kopylov.springbootonlineshop.controller.export;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
+import com.kopylov.springbootonlineshop.model.Product;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+class NdjsonProductExportWriter implements ProductExportWriter {
+
+    private final SequenceWriter sequenceWriter;
+
+    NdjsonProductExportWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+        this.sequenceWriter = objectMapper.writerFor(Product.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET)
+                .withRootValueSeparator("\n")
+                .writeValues(outputStream);
+    }
+
+    @Override
+    public void write(Product product) throws IOException {
+        sequenceWriter.write(product);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sequenceWriter.close();
+    }
+}
@@ -0,0 +1,51 @@
+package com.kopylov.springbootonlineshop.controller.export;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.http.MediaType;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Optional;
+
+public enum ProductExportFormat {
+
+    NDJSON("ndjson", MediaType.parseMediaType("application/x-ndjson")) {
+        @Override
+        public ProductExportWriter createWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException {
+            return new NdjsonProductExportWriter(outputStream, objectMapper);
+        }
+    },
+    CSV("csv", MediaType.parseMediaType("text/csv")) {
+        @Override
+        public ProductExportWriter createWriter(OutputStream outputStream, ObjectMapper objectMapper) {
+            return new CsvProductExportWriter(outputStream);
+        }
+    };
+
+    private final String name;
+    private final MediaType mediaType;
+
+    ProductExportFormat(String name, MediaType mediaType) {
+        this.name = name;
+        this.mediaType = mediaType;
+    }
+
+    public MediaType getMediaType() {
+        return mediaType;
+    }
+
+    public String getFileName() {
+        return "products." + name;
+    }
+
+    public abstract ProductExportWriter createWriter(OutputStream outputStream, ObjectMapper objectMapper) throws IOException;
+
+    public static Optional<ProductExportFormat> fromName(String name) {
+        for (ProductExportFormat format : values()) {
+            if (format.name.equalsIgnoreCase(name)) {
+                return Optional.of(format);
+            }
+        }
+        return Optional.empty();
+    }
+}
@@ -0,0 +1,11 @@
+package com.kopylov.springbootonlineshop.controller.export;
+
+import com.kopylov.springbootonlineshop.model.Product;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+public interface ProductExportWriter extends Closeable {
+
+    void write(Product product) throws IOException;
+}
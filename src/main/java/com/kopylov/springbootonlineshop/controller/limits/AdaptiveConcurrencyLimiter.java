@@ -0,0 +1,183 @@
+package com.kopylov.springbootonlineshop.controller.limits;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+/**
+ * Caps the number of requests in flight at a limit that follows the latency they see. A short moving average of
+ * the request latency is compared with the lowest latency seen lately, which is what a request costs when nothing
+ * queues. While the average stays within twice that floor the limit keeps growing, by a fraction of its square root
+ * per update; when it climbs past that, requests are queueing somewhere downstream, typically for a JDBC
+ * connection, and the limit shrinks in proportion. The floor creeps up by a small fraction per request, so a
+ * backend that has become slower for good is followed within some ten thousand requests. Updates are skipped while
+ * the limit is not the bottleneck, so a quiet period does not inflate it.
+ * <p>
+ * A request over the limit waits up to {@code queueTimeout} in a queue of at most {@code queueSize} requests for
+ * another to finish, which absorbs short bursts; anything beyond that is refused at once.
+ */
+public class AdaptiveConcurrencyLimiter {
+
+    private static final double SHORT_WINDOW = 10;
+    private static final double FLOOR_DRIFT = 0.0001;
+    private static final double TOLERANCE = 2.0;
+    private static final double SMOOTHING = 0.2;
+    private static final double MIN_GRADIENT = 0.5;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final int queueSize;
+    private final long queueTimeoutNanos;
+    private final LongSupplier nanoClock;
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final ReentrantLock queueLock = new ReentrantLock();
+    private final Condition released = queueLock.newCondition();
+
+    private final ReentrantLock updateLock = new ReentrantLock();
+    private double estimatedLimit;
+    private boolean sampled;
+    private double shortLatency;
+    private double floorLatency;
+    private volatile int limit;
+
+    public AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int queueSize,
+                                      Duration queueTimeout) {
+        this(initialLimit, minLimit, maxLimit, queueSize, queueTimeout, System::nanoTime);
+    }
+
+    AdaptiveConcurrencyLimiter(int initialLimit, int minLimit, int maxLimit, int queueSize, Duration queueTimeout,
+                               LongSupplier nanoClock) {
+        if (minLimit < 1 || maxLimit < minLimit) {
+            throw new IllegalArgumentException("Concurrency limits need 1 <= min-limit <= max-limit");
+        }
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.queueSize = queueSize;
+        this.queueTimeoutNanos = queueTimeout.toNanos();
+        this.nanoClock = nanoClock;
+        this.estimatedLimit = Math.max(minLimit, Math.min(initialLimit, maxLimit));
+        this.limit = (int) estimatedLimit;
+    }
+
+    /**
+     * Returns a permit for one request, waiting in the queue if the limit is reached, or {@code null} if the
+     * request should be refused. The permit must be released when the request is done.
+     */
+    public Permit acquire() {
+        if (tryIncrement()) {
+            return new Permit();
+        }
+        if (queued.incrementAndGet() > queueSize) {
+            queued.decrementAndGet();
+            return null;
+        }
+        try {
+            long deadline = nanoClock.getAsLong() + queueTimeoutNanos;
+            queueLock.lockInterruptibly();
+            try {
+                while (!tryIncrement()) {
+                    long remaining = deadline - nanoClock.getAsLong();
+                    if (remaining <= 0) {
+                        return null;
+                    }
+                    released.awaitNanos(remaining);
+                }
+            } finally {
+                queueLock.unlock();
+            }
+            return new Permit();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        } finally {
+            queued.decrementAndGet();
+        }
+    }
+
+    public int getLimit() {
+        return limit;
+    }
+
+    public int getInFlight() {
+        return inFlight.get();
+    }
+
+    public int getQueued() {
+        return queued.get();
+    }
+
+    private boolean tryIncrement() {
+        while (true) {
+            int current = inFlight.get();
+            if (current >= limit) {
+                return false;
+            }
+            if (inFlight.compareAndSet(current, current + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * Feeds one request latency into the limit. Concurrent samples are dropped rather than waited for; at the
+     * rates where that happens, the ones that get through are plenty.
+     */
+    void onSample(long latencyNanos, int inFlightAtStart) {
+        if (!updateLock.tryLock()) {
+            return;
+        }
+        try {
+            if (!sampled) {
+                sampled = true;
+                shortLatency = latencyNanos;
+                floorLatency = Math.max(latencyNanos, 1);
+                return;
+            }
+            shortLatency += (latencyNanos - shortLatency) / SHORT_WINDOW;
+            floorLatency = Math.min(floorLatency * (1 + FLOOR_DRIFT), Math.max(latencyNanos, 1));
+            if (inFlightAtStart < estimatedLimit / 2) {
+                return;
+            }
+            double gradient = Math.max(MIN_GRADIENT, Math.min(1.0, TOLERANCE * floorLatency / shortLatency));
+            double target = estimatedLimit * gradient + Math.sqrt(estimatedLimit);
+            estimatedLimit = Math.max(minLimit, Math.min(maxLimit,
+                    estimatedLimit * (1 - SMOOTHING) + target * SMOOTHING));
+            limit = (int) estimatedLimit;
+        } finally {
+            updateLock.unlock();
+        }
+    }
+
+    /**
+     * One admitted request. Its latency is measured from admission, not from arrival, so time spent in the queue
+     * does not feed back into the limit.
+     */
+    public final class Permit {
+
+        private final long startNanos = nanoClock.getAsLong();
+        private final int inFlightAtStart = inFlight.get();
+
+        private Permit() {
+        }
+
+        /**
+         * Frees the slot and records the request latency.
+         */
+        public void release() {
+            inFlight.decrementAndGet();
+            onSample(nanoClock.getAsLong() - startNanos, inFlightAtStart);
+            if (queued.get() > 0) {
+                queueLock.lock();
+                try {
+                    released.signal();
+                } finally {
+                    queueLock.unlock();
+                }
+            }
+        }
+    }
+}
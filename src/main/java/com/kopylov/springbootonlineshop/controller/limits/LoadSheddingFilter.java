@@ -0,0 +1,213 @@
+package com.kopylov.springbootonlineshop.controller.limits;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.core.Ordered;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+
+/**
+ * Sheds product requests before they reach a controller. Each client gets a token bucket per endpoint, with
+ * separate rates for reads and writes, and is answered 429 once it runs dry. Requests within their rate then pass
+ * an {@link AdaptiveConcurrencyLimiter} shared by all clients and are answered 503 when it has no room, so an
+ * overloaded instance turns away the excess quickly instead of letting every request wait for a JDBC connection.
+ * Both answers carry a {@code Retry-After}.
+ * <p>
+ * Clients are told apart by {@code clientHeader} when it is set and present, for example an API key or a header a
+ * trusted proxy fills in, and by remote address otherwise. The change feed and the export hold their connection
+ * for minutes, so they are rate limited but do not count against the concurrency limit.
+ * <p>
+ * Buckets and the rejection meter are keyed by method and endpoint template, taken from the decoded path without
+ * semicolon content. Paths outside the known templates, and methods the API does not use, share an {@code other}
+ * bucket, so neither the rate limiter nor the meter grows with whatever paths clients make up.
+ */
+public class LoadSheddingFilter extends OncePerRequestFilter implements MeterBinder, Ordered {
+
+    static final String RATE_LIMITED = "rate-limited";
+    static final String OVERLOADED = "overloaded";
+    static final String OTHER = "other";
+
+    private static final Set<String> SAFE_METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name(),
+            HttpMethod.OPTIONS.name());
+    private static final Set<String> METHODS = Set.of(HttpMethod.GET.name(), HttpMethod.HEAD.name(),
+            HttpMethod.OPTIONS.name(), HttpMethod.POST.name(), HttpMethod.PUT.name(), HttpMethod.PATCH.name(),
+            HttpMethod.DELETE.name());
+    private static final Set<String> ENDPOINTS = Set.of("/product", "/products", "/products/",
+            "/products/{id}", "/products/create", "/products/writes/{id}", "/products/bulk/create",
+            "/products/{id}/update", "/products/bulk/update", "/products/{id}/delete", "/products/bulk/delete",
+            "/products/changes", "/products/export");
+    private static final Set<String> LONG_LIVED_PATHS = Set.of("/products/changes", "/products/export");
+    private static final Pattern ID_SEGMENT = Pattern.compile("/\\d+(?=/|$)");
+
+    private final TokenBucketRateLimiter readLimiter;
+    private final TokenBucketRateLimiter writeLimiter;
+    private final AdaptiveConcurrencyLimiter concurrencyLimiter;
+    private final String clientHeader;
+    private final String retryAfterSeconds;
+    private final Map<String, Counter> rejections = new ConcurrentHashMap<>();
+    private final UrlPathHelper urlPathHelper = new UrlPathHelper();
+    private volatile MeterRegistry registry;
+
+    /**
+     * Any of the limiters may be {@code null} to leave that part out.
+     */
+    public LoadSheddingFilter(TokenBucketRateLimiter readLimiter, TokenBucketRateLimiter writeLimiter,
+                              AdaptiveConcurrencyLimiter concurrencyLimiter, String clientHeader,
+                              Duration retryAfter) {
+        this.readLimiter = readLimiter;
+        this.writeLimiter = writeLimiter;
+        this.concurrencyLimiter = concurrencyLimiter;
+        this.clientHeader = clientHeader == null || clientHeader.isBlank() ? null : clientHeader;
+        this.retryAfterSeconds = String.valueOf(Math.max(1, retryAfter.toSeconds()));
+        urlPathHelper.setRemoveSemicolonContent(true);
+    }
+
+    @Override
+    public int getOrder() {
+        // Ahead of everything that does per-request work, right behind the character encoding filter.
+        return Ordered.HIGHEST_PRECEDENCE + 2;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !urlPathHelper.getPathWithinApplication(request).startsWith("/product");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String path = endpointOf(urlPathHelper.getPathWithinApplication(request));
+        String endpoint = (METHODS.contains(request.getMethod()) ? request.getMethod() : OTHER) + " " + path;
+        TokenBucketRateLimiter rateLimiter = SAFE_METHODS.contains(request.getMethod()) ? readLimiter : writeLimiter;
+        if (rateLimiter != null) {
+            long waitNanos = rateLimiter.tryAcquire(clientOf(request) + " " + endpoint);
+            if (waitNanos > 0) {
+                long waitSeconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1)
+                        / TimeUnit.SECONDS.toNanos(1));
+                reject(response, HttpStatus.TOO_MANY_REQUESTS, String.valueOf(waitSeconds), RATE_LIMITED, endpoint);
+                return;
+            }
+        }
+        if (concurrencyLimiter == null || LONG_LIVED_PATHS.contains(path)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+        AdaptiveConcurrencyLimiter.Permit permit = concurrencyLimiter.acquire();
+        if (permit == null) {
+            reject(response, HttpStatus.SERVICE_UNAVAILABLE, retryAfterSeconds, OVERLOADED, endpoint);
+            return;
+        }
+        boolean released = true;
+        try {
+            filterChain.doFilter(request, response);
+            if (request.isAsyncStarted()) {
+                request.getAsyncContext().addListener(new ReleaseOnComplete(permit));
+                released = false;
+            }
+        } finally {
+            if (released) {
+                permit.release();
+            }
+        }
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        this.registry = registry;
+        if (concurrencyLimiter != null) {
+            Gauge.builder("products.load.limit", concurrencyLimiter, AdaptiveConcurrencyLimiter::getLimit)
+                    .description("Current adaptive concurrency limit for product requests")
+                    .register(registry);
+            Gauge.builder("products.load.in.flight", concurrencyLimiter, AdaptiveConcurrencyLimiter::getInFlight)
+                    .register(registry);
+            Gauge.builder("products.load.queue.depth", concurrencyLimiter, AdaptiveConcurrencyLimiter::getQueued)
+                    .description("Product requests waiting for a concurrency permit")
+                    .register(registry);
+        }
+        if (readLimiter != null) {
+            Gauge.builder("products.rate.limit.clients", readLimiter, TokenBucketRateLimiter::getClientCount)
+                    .tag("type", "read")
+                    .register(registry);
+        }
+        if (writeLimiter != null) {
+            Gauge.builder("products.rate.limit.clients", writeLimiter, TokenBucketRateLimiter::getClientCount)
+                    .tag("type", "write")
+                    .register(registry);
+        }
+    }
+
+    private static String endpointOf(String path) {
+        String template = ID_SEGMENT.matcher(path).replaceAll("/{id}");
+        return ENDPOINTS.contains(template) ? template : OTHER;
+    }
+
+    private String clientOf(HttpServletRequest request) {
+        if (clientHeader != null) {
+            String client = request.getHeader(clientHeader);
+            if (client != null && !client.isBlank()) {
+                return client;
+            }
+        }
+        return request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, HttpStatus status, String retryAfter, String reason,
+                        String endpoint) {
+        response.setStatus(status.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, retryAfter);
+        MeterRegistry current = registry;
+        if (current != null) {
+            rejections.computeIfAbsent(reason + " " + endpoint, key -> Counter.builder("products.load.rejected")
+                    .description("Product requests shed before reaching a controller")
+                    .tag("reason", reason)
+                    .tag("endpoint", endpoint)
+                    .register(current))
+                    .increment();
+        }
+    }
+
+    private static final class ReleaseOnComplete implements AsyncListener {
+
+        private final AdaptiveConcurrencyLimiter.Permit permit;
+
+        private ReleaseOnComplete(AdaptiveConcurrencyLimiter.Permit permit) {
+            this.permit = permit;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) {
+            permit.release();
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) {
+        }
+
+        @Override
+        public void onError(AsyncEvent event) {
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) {
+        }
+    }
+}
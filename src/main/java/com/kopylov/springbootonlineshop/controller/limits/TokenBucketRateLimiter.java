@@ -0,0 +1,65 @@
+package com.kopylov.springbootonlineshop.controller.limits;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by client and endpoint, each refilled at {@code requestsPerSecond} up to {@code burst} tokens.
+ * A bucket is a single {@link AtomicLong} holding the time at which it will be full again, the generic cell rate
+ * algorithm form of a token bucket, so taking a token is one compare-and-set with no lock and no refill timer.
+ * Buckets idle for {@code idleTimeout} are dropped; a returning client starts with a full bucket.
+ */
+public class TokenBucketRateLimiter {
+
+    private final long emissionInterval;
+    private final long burstTolerance;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public TokenBucketRateLimiter(double requestsPerSecond, int burst, Duration idleTimeout, long maximumClients) {
+        this(requestsPerSecond, burst, idleTimeout, maximumClients, System::nanoTime);
+    }
+
+    TokenBucketRateLimiter(double requestsPerSecond, int burst, Duration idleTimeout, long maximumClients,
+                           LongSupplier nanoClock) {
+        if (requestsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Rate limit needs a positive rate and a burst of at least 1");
+        }
+        this.emissionInterval = (long) (TimeUnit.SECONDS.toNanos(1) / requestsPerSecond);
+        this.burstTolerance = emissionInterval * (burst - 1);
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .expireAfterAccess(idleTimeout)
+                .maximumSize(maximumClients)
+                .build();
+    }
+
+    /**
+     * Takes a token from the bucket of {@code key}. Returns 0 if one was available, or otherwise how many
+     * nanoseconds until the next token, without taking anything.
+     */
+    public long tryAcquire(String key) {
+        long now = nanoClock.getAsLong();
+        AtomicLong fullAt = buckets.get(key, ignored -> new AtomicLong(now));
+        while (true) {
+            long current = fullAt.get();
+            long start = current - now > 0 ? current : now;
+            long wait = start - now - burstTolerance;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, start + emissionInterval)) {
+                return 0;
+            }
+        }
+    }
+
+    public long getClientCount() {
+        return buckets.estimatedSize();
+    }
+}
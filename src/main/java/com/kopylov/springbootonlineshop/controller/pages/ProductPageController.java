@@ -0,0 +1,142 @@
+package com.kopylov.springbootonlineshop.controller.pages;
+
+import com.kopylov.springbootonlineshop.dto.ProductPage;
+import com.kopylov.springbootonlineshop.exceptions.InvalidCursorException;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.services.ProductService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Controller;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.view.freemarker.FreeMarkerConfigurer;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.LongFunction;
+import java.util.function.Supplier;
+
+/**
+ * HTML catalog pages. Listings and search results are paged with the same keyset cursors as the JSON API, and each
+ * page is streamed from {@link ProductPageRenderer}, or served from its cache when the catalog has not changed since
+ * the page was rendered. The catalog version also answers conditional requests, as it does for the JSON API.
+ */
+@Controller
+@RequestMapping("/product")
+public class ProductPageController {
+
+    private static final MediaType TEXT_HTML_UTF8 = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
+    private final ProductService productService;
+    private final ProductPageRenderer renderer;
+    private final int pageSize;
+    private final CacheControl cacheControl;
+
+    public ProductPageController(ProductService productService, FreeMarkerConfigurer freeMarkerConfigurer,
+                                 @Value("${products.pages.page-size:50}") int pageSize,
+                                 @Value("${products.pages.cache.maximum-size:32MB}") DataSize cacheSize,
+                                 @Value("${products.http.cache.max-age:0s}") Duration maxAge,
+                                 @Value("${products.http.cache.shared-max-age:5s}") Duration sharedMaxAge,
+                                 @Value("${products.http.cache.stale-while-revalidate:30s}") Duration staleWhileRevalidate) {
+        this.productService = productService;
+        this.renderer = new ProductPageRenderer(freeMarkerConfigurer.getConfiguration(), cacheSize.toBytes());
+        this.pageSize = pageSize;
+        this.cacheControl = CacheControl.maxAge(maxAge)
+                .cachePublic()
+                .sMaxAge(sharedMaxAge)
+                .staleWhileRevalidate(staleWhileRevalidate);
+    }
+
+    @GetMapping(params = "!search")
+    public ResponseEntity<StreamingResponseBody> getCatalogPage(@RequestParam(value = "sort", required = false) String sort,
+                                                                @RequestParam(value = "cursor", required = false) String cursor,
+                                                                @RequestParam(value = "limit", required = false) Integer limit,
+                                                                WebRequest request) {
+        int size = size(limit);
+        Map<String, Object> parameters = parameters("sort", sort, "cursor", cursor, "limit", size);
+        return page("index.html", parameters, version -> new ProductPageRenderer.Key("index.html", version, sort,
+                null, cursor, size), request, () -> productService.findPage(sort, cursor, size));
+    }
+
+    @GetMapping(params = "search")
+    public ResponseEntity<StreamingResponseBody> getSearchPage(@RequestParam("search") String query,
+                                                               @RequestParam(value = "cursor", required = false) String cursor,
+                                                               @RequestParam(value = "limit", required = false) Integer limit,
+                                                               WebRequest request) {
+        int size = size(limit);
+        Map<String, Object> parameters = parameters("search", query, "cursor", cursor, "limit", size);
+        return page("search.html", parameters, version -> new ProductPageRenderer.Key("search.html", version, null,
+                query, cursor, size), request, () -> productService.search(query, cursor, size));
+    }
+
+    /**
+     * Renders the page, or serves it from the cache under the catalog version read first. A rendered page is only
+     * cached if the version is the same when read again after the page, so it never lands under a version whose
+     * data it does not show, even when the two reads reached different replicas.
+     */
+    private ResponseEntity<StreamingResponseBody> page(String template, Map<String, Object> parameters,
+                                                       LongFunction<ProductPageRenderer.Key> keyAtVersion,
+                                                       WebRequest request, Supplier<ProductPage> productPage) {
+        Optional<CatalogVersion> catalogVersion = productService.getCatalogVersion();
+        if (catalogVersion.isPresent() && request.checkNotModified("W/\"" + catalogVersion.get().getVersion() + "\"",
+                catalogVersion.get().getLastModified().toEpochMilli())) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).cacheControl(cacheControl).build();
+        }
+
+        ProductPageRenderer.Key key = catalogVersion
+                .map(version -> keyAtVersion.apply(version.getVersion()))
+                .orElse(null);
+        byte[] cached = renderer.getCached(key);
+        if (cached != null) {
+            return ResponseEntity.ok()
+                    .contentType(TEXT_HTML_UTF8)
+                    .cacheControl(cacheControl)
+                    .contentLength(cached.length)
+                    .body(outputStream -> outputStream.write(cached));
+        }
+
+        ProductPage page;
+        try {
+            page = productPage.get();
+        } catch (InvalidCursorException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        boolean versionHeld = key != null && productService.getCatalogVersion()
+                .map(version -> version.getVersion() == key.catalogVersion())
+                .orElse(false);
+        ProductPageRenderer.Key cacheKey = versionHeld ? key : null;
+        Map<String, Object> model = new LinkedHashMap<>(parameters);
+        model.put("Products", page.getProducts());
+        if (page.getNextCursor() != null) {
+            model.put("nextCursor", page.getNextCursor());
+        }
+        return ResponseEntity.ok()
+                .contentType(TEXT_HTML_UTF8)
+                .cacheControl(cacheControl)
+                .body(outputStream -> renderer.render(template, model, outputStream, cacheKey));
+    }
+
+    private int size(Integer limit) {
+        return Math.max(1, Math.min(limit == null ? pageSize : limit, ProductService.MAX_PAGE_SIZE));
+    }
+
+    private static Map<String, Object> parameters(Object... namesAndValues) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        for (int i = 0; i < namesAndValues.length; i += 2) {
+            if (namesAndValues[i + 1] != null) {
+                parameters.put((String) namesAndValues[i], namesAndValues[i + 1]);
+            }
+        }
+        return parameters;
+    }
+}
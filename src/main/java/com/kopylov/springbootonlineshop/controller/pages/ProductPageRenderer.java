@@ -0,0 +1,110 @@
+package com.kopylov.springbootonlineshop.controller.pages;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kopylov.springbootonlineshop.model.Money;
+import freemarker.core.Environment;
+import freemarker.template.Configuration;
+import freemarker.template.Template;
+import freemarker.template.TemplateException;
+import freemarker.template.TemplateMethodModelEx;
+import freemarker.template.TemplateNumberModel;
+import freemarker.template.TemplateScalarModel;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/**
+ * Renders FreeMarker pages straight into the response and keeps the rendered bytes of recent pages. The writer
+ * hands the response 8 KiB at a time, so the first rows reach the client while the rest of the page is still being
+ * rendered, and the page is never held as one {@code String}. Cached pages are bounded by their total size in bytes;
+ * keys carry the catalog version, so a write to the catalog makes every older page unreachable.
+ */
+public class ProductPageRenderer {
+
+    /**
+     * {@code formatPrice(price, currency)} shows a price in minor units as a decimal amount, 1999 USD as 19.99.
+     */
+    private static final TemplateMethodModelEx FORMAT_PRICE = arguments -> Money.toDecimal(
+            ((TemplateNumberModel) arguments.get(0)).getAsNumber().longValue(),
+            ((TemplateScalarModel) arguments.get(1)).getAsString()).toPlainString();
+
+    private final Configuration configuration;
+    private final Cache<Key, byte[]> pages;
+
+    public ProductPageRenderer(Configuration configuration, long maximumWeight) {
+        this.configuration = configuration;
+        this.pages = maximumWeight > 0 ? Caffeine.newBuilder()
+                .maximumWeight(maximumWeight)
+                .weigher((Key key, byte[] page) -> page.length)
+                .build() : null;
+    }
+
+    public byte[] getCached(Key key) {
+        return pages == null || key == null ? null : pages.getIfPresent(key);
+    }
+
+    /**
+     * Renders {@code template} with {@code model} into {@code outputStream}, and caches the result under {@code key}
+     * unless it is {@code null}.
+     */
+    public void render(String template, Map<String, Object> model, OutputStream outputStream, Key key)
+            throws IOException {
+        Template page = configuration.getTemplate(template);
+        ByteArrayOutputStream copy = pages != null && key != null ? new ByteArrayOutputStream() : null;
+        OutputStream target = copy == null ? outputStream : new TeeOutputStream(outputStream, copy);
+        Writer writer = new OutputStreamWriter(target, StandardCharsets.UTF_8);
+        try {
+            Environment environment = page.createProcessingEnvironment(model, writer);
+            environment.setOutputEncoding(StandardCharsets.UTF_8.name());
+            environment.setGlobalVariable("formatPrice", FORMAT_PRICE);
+            environment.process();
+        } catch (TemplateException e) {
+            throw new IOException("Could not render " + template, e);
+        }
+        writer.flush();
+        if (copy != null) {
+            pages.put(key, copy.toByteArray());
+        }
+    }
+
+    /**
+     * Identifies a page by {@code template} rendered at {@code catalogVersion} with the request's parameters, each
+     * {@code null} when absent and the limit already clamped.
+     */
+    public record Key(String template, long catalogVersion, String sort, String search, String cursor, int limit) {
+    }
+
+    private static final class TeeOutputStream extends OutputStream {
+
+        private final OutputStream response;
+        private final ByteArrayOutputStream copy;
+
+        private TeeOutputStream(OutputStream response, ByteArrayOutputStream copy) {
+            this.response = response;
+            this.copy = copy;
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            response.write(b);
+            copy.write(b);
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            response.write(bytes, offset, length);
+            copy.write(bytes, offset, length);
+        }
+
+        @Override
+        public void flush() throws IOException {
+            response.flush();
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.kopylov.springbootonlineshop.dao;
+
+import com.kopylov.springbootonlineshop.model.ProductChange;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface ProductChangesDao {
+
+    List<ProductChange> findAfter(long offset, int limit);
+
+    /**
+     * Returns the offset of the newest recorded change, or 0 if there is none.
+     */
+    long findLatestOffset();
+
+    /**
+     * Returns the offset of the oldest change still recorded, or 0 if there is none.
+     */
+    long findEarliestOffset();
+
+    /**
+     * Deletes changes recorded before {@code before}, always keeping the newest one so the latest offset survives.
+     */
+    int deleteBefore(Instant before);
+}
@@ -1,22 +1,60 @@
 package com.kopylov.springbootonlineshop.dao;
 
 import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
 import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
 
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ProductsDao {
 
     long save(Product product);
 
+    List<Long> saveAll(List<Product> products);
+
+    /**
+     * Takes {@code count} ids from the products id sequence for rows inserted later with {@link #insertAll}.
+     */
+    List<Long> reserveIds(int count);
+
+    /**
+     * Inserts products that already carry a reserved id, skipping ids that already exist so a retried batch is
+     * harmless. Returns the number of rows actually inserted.
+     */
+    int insertAll(List<Product> products);
+
     Optional<Product> findById(long id);
 
     List<Product> findByName(String name);
 
+    List<Product> search(String query, int offset, int limit);
+
     List<Product> findAll();
 
-    void update(Product product);
+    List<Product> findAll(ProductSort sort);
+
+    List<Product> findPage(ProductSort sort, Product after, int limit);
+
+    /**
+     * Returns up to {@code limit} products in {@code currency} priced from {@code minPrice} to {@code maxPrice} minor
+     * units inclusive, in price then id order, starting after the price and id of {@code after} when it is given.
+     */
+    List<Product> findPriceRange(String currency, long minPrice, long maxPrice, Product after, int limit);
+
+    void streamAll(Consumer<Product> consumer);
+
+    Optional<CatalogVersion> findCatalogVersion();
+
+    Optional<Product> update(Product product);
+
+    Optional<Product> update(Product product, long expectedVersion);
+
+    int[] updateAll(List<Product> products);
+
+    boolean delete(long id);
 
-    void delete(long id);
+    int[] deleteAll(List<Long> ids);
 }
@@ -0,0 +1,243 @@
+package com.kopylov.springbootonlineshop.dao.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dao.routing.ReadRoutingContext;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Read-through cache in front of another {@link ProductsDao}. Entries are bounded by size and expire after
+ * {@code ttl}; writes go to the delegate first and then drop every entry that may contain the written product.
+ * Cached products are mutable, so callers always receive copies.
+ * <p>
+ * A name lookup is dropped by its name, and by the ids it returned when a write only knows the id, through an index
+ * of the names each cached product was listed under. A lookup by id is loaded inside the cache's own computation,
+ * which an invalidation of the same id waits for. A name lookup records a write stamp before reading and is only
+ * cached if no write has finished since, so a load racing with a write never outlives it. Index entries go when
+ * their product is written; until then they stay, one per product and name it was listed under.
+ * <p>
+ * Misses are loaded from the primary even when reads are routed to replicas. The cache is already a replica that
+ * this instance's writes keep current, and a row loaded from a lagging one would be served to every client,
+ * including the writer inside its read-your-writes window, for the whole {@code ttl}.
+ */
+public class CachingProductsDao implements ProductsDao, MeterBinder {
+
+    private final ProductsDao delegate;
+    private final Cache<Long, Product> productsById;
+    private final Cache<String, List<Product>> productsByName;
+    private final ConcurrentMap<Long, Set<String>> namesById = new ConcurrentHashMap<>();
+    private final AtomicLong writes = new AtomicLong();
+
+    public CachingProductsDao(ProductsDao delegate, long maximumSize, Duration ttl) {
+        this.delegate = delegate;
+        this.productsById = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.productsByName = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+    }
+
+    @Override
+    public long save(Product product) {
+        long id = delegate.save(product);
+        writes.incrementAndGet();
+        invalidateName(product.getName());
+        return id;
+    }
+
+    @Override
+    public List<Long> saveAll(List<Product> products) {
+        List<Long> ids = delegate.saveAll(products);
+        writes.incrementAndGet();
+        products.forEach(product -> invalidateName(product.getName()));
+        return ids;
+    }
+
+    @Override
+    public List<Long> reserveIds(int count) {
+        return delegate.reserveIds(count);
+    }
+
+    @Override
+    public int insertAll(List<Product> products) {
+        int inserted = delegate.insertAll(products);
+        writes.incrementAndGet();
+        invalidateAll(products.stream().map(Product::getId).toList());
+        products.forEach(product -> invalidateName(product.getName()));
+        return inserted;
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        Product product = productsById.get(id, key ->
+                ReadRoutingContext.onPrimary(() -> delegate.findById(key)).orElse(null));
+        return Optional.ofNullable(product).map(this::copy);
+    }
+
+    @Override
+    public List<Product> findByName(String name) {
+        if (name == null) {
+            return delegate.findByName(null);
+        }
+        List<Product> cached = productsByName.getIfPresent(name);
+        if (cached != null) {
+            return copy(cached);
+        }
+        long stamp = writes.get();
+        List<Product> loaded = List.copyOf(ReadRoutingContext.onPrimary(() -> delegate.findByName(name)));
+        // Indexed before the stamp check: a write that finishes after the check finds the name here.
+        loaded.forEach(product -> namesById.computeIfAbsent(product.getId(), id -> ConcurrentHashMap.newKeySet())
+                .add(name));
+        productsByName.asMap().compute(name, (key, current) ->
+                current != null || writes.get() != stamp ? current : loaded);
+        return copy(loaded);
+    }
+
+    @Override
+    public List<Product> search(String query, int offset, int limit) {
+        return delegate.search(query, offset, limit);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Product> findAll(ProductSort sort) {
+        return delegate.findAll(sort);
+    }
+
+    @Override
+    public List<Product> findPage(ProductSort sort, Product after, int limit) {
+        return delegate.findPage(sort, after, limit);
+    }
+
+    @Override
+    public List<Product> findPriceRange(String currency, long minPrice, long maxPrice, Product after, int limit) {
+        return delegate.findPriceRange(currency, minPrice, maxPrice, after, limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Optional<CatalogVersion> findCatalogVersion() {
+        return delegate.findCatalogVersion();
+    }
+
+    @Override
+    public Optional<Product> update(Product product) {
+        Optional<Product> updated = delegate.update(product);
+        writes.incrementAndGet();
+        invalidate(product.getId());
+        invalidateName(product.getName());
+        return updated;
+    }
+
+    @Override
+    public Optional<Product> update(Product product, long expectedVersion) {
+        Optional<Product> updated = delegate.update(product, expectedVersion);
+        writes.incrementAndGet();
+        invalidate(product.getId());
+        invalidateName(product.getName());
+        return updated;
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        int[] updateCounts = delegate.updateAll(products);
+        writes.incrementAndGet();
+        invalidateAll(products.stream().map(Product::getId).toList());
+        products.forEach(product -> invalidateName(product.getName()));
+        return updateCounts;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        boolean deleted = delegate.delete(id);
+        writes.incrementAndGet();
+        invalidate(id);
+        return deleted;
+    }
+
+    @Override
+    public int[] deleteAll(List<Long> ids) {
+        int[] deleteCounts = delegate.deleteAll(ids);
+        writes.incrementAndGet();
+        invalidateAll(ids);
+        return deleteCounts;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, productsById, "products.byId");
+        CaffeineCacheMetrics.monitor(registry, productsByName, "products.byName");
+    }
+
+    public CacheStats getByIdStats() {
+        return productsById.stats();
+    }
+
+    public CacheStats getByNameStats() {
+        return productsByName.stats();
+    }
+
+    public long getByIdSize() {
+        return productsById.estimatedSize();
+    }
+
+    public long getByNameSize() {
+        return productsByName.estimatedSize();
+    }
+
+    private void invalidate(long id) {
+        productsById.invalidate(id);
+        Set<String> names = namesById.remove(id);
+        if (names != null) {
+            productsByName.invalidateAll(names);
+        }
+    }
+
+    private void invalidateAll(Collection<Long> ids) {
+        ids.forEach(this::invalidate);
+    }
+
+    private void invalidateName(String name) {
+        if (name != null) {
+            productsByName.invalidate(name);
+        }
+    }
+
+    private List<Product> copy(List<Product> products) {
+        return products.stream().map(this::copy).toList();
+    }
+
+    private Product copy(Product product) {
+        return product.toBuilder().build();
+    }
+}
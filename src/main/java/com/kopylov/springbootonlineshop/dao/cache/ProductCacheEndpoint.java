@@ -0,0 +1,37 @@
+package com.kopylov.springbootonlineshop.dao.cache;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Endpoint(id = "productcache")
+public class ProductCacheEndpoint {
+
+    private final CachingProductsDao cachingProductsDao;
+
+    public ProductCacheEndpoint(CachingProductsDao cachingProductsDao) {
+        this.cachingProductsDao = cachingProductsDao;
+    }
+
+    @ReadOperation
+    public Map<String, Map<String, Object>> stats() {
+        Map<String, Map<String, Object>> stats = new LinkedHashMap<>();
+        stats.put("byId", toMap(cachingProductsDao.getByIdStats(), cachingProductsDao.getByIdSize()));
+        stats.put("byName", toMap(cachingProductsDao.getByNameStats(), cachingProductsDao.getByNameSize()));
+        return stats;
+    }
+
+    private Map<String, Object> toMap(CacheStats cacheStats, long size) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("size", size);
+        values.put("hits", cacheStats.hitCount());
+        values.put("misses", cacheStats.missCount());
+        values.put("hitRate", cacheStats.hitRate());
+        values.put("evictions", cacheStats.evictionCount());
+        values.put("loadFailures", cacheStats.loadFailureCount());
+        return values;
+    }
+}
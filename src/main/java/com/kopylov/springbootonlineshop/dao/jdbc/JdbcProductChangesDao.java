@@ -0,0 +1,64 @@
+package com.kopylov.springbootonlineshop.dao.jdbc;
+
+import com.kopylov.springbootonlineshop.dao.ProductChangesDao;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductChange;
+import com.kopylov.springbootonlineshop.model.ProductChangeType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public class JdbcProductChangesDao implements ProductChangesDao {
+
+    private static final String SELECT_CHANGES_AFTER_SQL =
+            "SELECT id, catalog_version, type, product_id, name, price, currency, creation_date, version, changed_at " +
+            "FROM product_changes WHERE id > ? ORDER BY id LIMIT ?";
+
+    private static final String SELECT_LATEST_OFFSET_SQL = "SELECT COALESCE(max(id), 0) FROM product_changes";
+
+    private static final String SELECT_EARLIEST_OFFSET_SQL = "SELECT COALESCE(min(id), 0) FROM product_changes";
+
+    private static final String DELETE_CHANGES_BEFORE_SQL =
+            "DELETE FROM product_changes WHERE changed_at < ? AND id < (SELECT max(id) FROM product_changes)";
+
+    private static final RowMapper<ProductChange> PRODUCT_CHANGE_ROW_MAPPER = (resultSet, rowNum) -> {
+        ProductChangeType type = ProductChangeType.valueOf(resultSet.getString(3));
+        Product product = type == ProductChangeType.TRUNCATE ? null : new Product(
+                resultSet.getLong(4),
+                resultSet.getString(5),
+                resultSet.getLong(6),
+                resultSet.getString(7),
+                resultSet.getObject(8, LocalDateTime.class),
+                resultSet.getLong(9));
+        return new ProductChange(resultSet.getLong(1), resultSet.getLong(2), type, product,
+                resultSet.getTimestamp(10).toInstant());
+    };
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public JdbcProductChangesDao(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public List<ProductChange> findAfter(long offset, int limit) {
+        return jdbcTemplate.query(SELECT_CHANGES_AFTER_SQL, PRODUCT_CHANGE_ROW_MAPPER, offset, limit);
+    }
+
+    public long findLatestOffset() {
+        return jdbcTemplate.queryForObject(SELECT_LATEST_OFFSET_SQL, Long.class);
+    }
+
+    public long findEarliestOffset() {
+        return jdbcTemplate.queryForObject(SELECT_EARLIEST_OFFSET_SQL, Long.class);
+    }
+
+    public int deleteBefore(Instant before) {
+        return jdbcTemplate.update(DELETE_CHANGES_BEFORE_SQL, Timestamp.from(before));
+    }
+}
@@ -1,56 +1,216 @@
 package com.kopylov.springbootonlineshop.dao.jdbc;
 
 import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dao.routing.ReadReplicas;
+import com.kopylov.springbootonlineshop.dao.routing.ReadRoutingContext;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
 import com.kopylov.springbootonlineshop.model.Product;
-import lombok.AllArgsConstructor;
-import org.springframework.jdbc.core.BeanPropertyRowMapper;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.SqlParameterValue;
 import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
 import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
 import org.springframework.jdbc.support.GeneratedKeyHolder;
 import org.springframework.jdbc.support.KeyHolder;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.StringJoiner;
+import java.util.function.Consumer;
 
 @Repository
-@AllArgsConstructor
 public class JdbcProductsDao implements ProductsDao {
 
     private static final String INSERT_PRODUCT_SQL =
-            "INSERT INTO products (name, price, creation_date) VALUES (?, ?, ?)";
+            "INSERT INTO products (name, price, currency, creation_date) VALUES (?, ?, ?, ?)";
+
+    private static final String INSERT_PRODUCTS_SQL =
+            "INSERT INTO products (name, price, currency, creation_date) VALUES ";
+
+    private static final String INSERT_PRODUCTS_VALUES_SQL = "(?, ?, ?, ?)";
+
+    private static final int INSERT_PRODUCTS_PARAMETERS = 4;
+
+    private static final int MAX_INSERT_CHUNK_SIZE = Short.MAX_VALUE / INSERT_PRODUCTS_PARAMETERS;
+
+    private static final String INSERT_PRODUCTS_WITH_IDS_SQL =
+            "INSERT INTO products (id, name, price, currency, creation_date) VALUES ";
+
+    private static final String INSERT_PRODUCTS_WITH_IDS_VALUES_SQL = "(?, ?, ?, ?, ?)";
+
+    private static final String INSERT_PRODUCTS_WITH_IDS_CONFLICT_SQL = " ON CONFLICT (id) DO NOTHING";
+
+    private static final int INSERT_PRODUCTS_WITH_IDS_PARAMETERS = 5;
+
+    private static final int MAX_INSERT_WITH_IDS_CHUNK_SIZE = Short.MAX_VALUE / INSERT_PRODUCTS_WITH_IDS_PARAMETERS;
+
+    private static final String RESERVE_PRODUCT_IDS_SQL =
+            "SELECT nextval(pg_get_serial_sequence('products', 'id')) FROM generate_series(1, ?)";
 
     private static final String UPDATE_PRODUCT_SQL =
-            "UPDATE products SET name=?, price=? WHERE id=?";
+            "UPDATE products SET name=?, price=?, currency=COALESCE(?, currency), version=version + 1 WHERE id=?";
+
+    private static final String UPDATE_PRODUCT_RETURNING_SQL =
+            UPDATE_PRODUCT_SQL + " RETURNING id, name, price, currency, creation_date, version";
+
+    private static final String UPDATE_PRODUCT_VERSION_RETURNING_SQL =
+            "UPDATE products SET name=?, price=?, currency=COALESCE(?, currency), version=version + 1 " +
+            "WHERE id=? AND version=? " +
+            "RETURNING id, name, price, currency, creation_date, version";
 
     private static final String DELETE_PRODUCT_SQL = "DELETE FROM products WHERE id=?";
 
-    private static final String SELECT_ALL_PRODUCTS_SQL = "SELECT id, name, price, creation_date FROM products";
+    private static final String SELECT_ALL_PRODUCTS_SQL = "SELECT id, name, price, currency, creation_date, version FROM products";
+
+    private static final String SELECT_ALL_PRODUCTS_SORTED_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products ORDER BY %1$s, id";
+
+    private static final String SELECT_ALL_PRODUCTS_ORDERED_BY_ID_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products ORDER BY id";
 
     private static final String SELECT_PRODUCT_BY_ID_SQL =
-            "SELECT id, name, price, creation_date FROM products WHERE id=?";
+            "SELECT id, name, price, currency, creation_date, version FROM products WHERE id=?";
+
+    static final String SELECT_PRODUCT_BY_NAME_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products WHERE name COLLATE \"C\" = ?";
+
+    static final String SEARCH_PRODUCTS_BY_PREFIX_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products " +
+            "WHERE lower(name) COLLATE \"C\" >= ? AND lower(name) COLLATE \"C\" < ? AND lower(name) COLLATE \"C\" LIKE ? " +
+            "ORDER BY lower(name) COLLATE \"C\", id LIMIT ? OFFSET ?";
+
+    static final String SEARCH_PRODUCTS_BY_OPEN_PREFIX_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products " +
+            "WHERE lower(name) COLLATE \"C\" >= ? AND lower(name) COLLATE \"C\" LIKE ? " +
+            "ORDER BY lower(name) COLLATE \"C\", id LIMIT ? OFFSET ?";
+
+    static final String SEARCH_PRODUCTS_BY_SUBSTRING_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products WHERE lower(name) LIKE ? " +
+            "ORDER BY lower(name) = ? DESC, lower(name) LIKE ? DESC, similarity(lower(name), ?) DESC, id LIMIT ? OFFSET ?";
 
-    private static final String SELECT_PRODUCT_BY_NAME_SQL =
-            "SELECT id, name, price, creation_date FROM products WHERE name=?";
+    private static final int MIN_TRIGRAM_QUERY_LENGTH = 3;
 
-    private static final BeanPropertyRowMapper<Product> PROPERTY_ROW_MAPPER = new BeanPropertyRowMapper<>(Product.class);
+    static final String SELECT_PRODUCTS_PAGE_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products ORDER BY %1$s, id LIMIT ?";
+
+    static final String SELECT_PRODUCTS_PAGE_AFTER_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products WHERE (%1$s, id) > (?, ?) ORDER BY %1$s, id LIMIT ?";
+
+    private static final String SELECT_PRICE_RANGE_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products " +
+            "WHERE currency = ? AND price BETWEEN ? AND ? ORDER BY price, id LIMIT ?";
+
+    static final String SELECT_PRICE_RANGE_AFTER_SQL =
+            "SELECT id, name, price, currency, creation_date, version FROM products " +
+            "WHERE currency = ? AND price BETWEEN ? AND ? AND (price, id) > (?, ?) ORDER BY price, id LIMIT ?";
+
+    private static final String SELECT_CATALOG_VERSION_SQL = "SELECT version, last_modified FROM catalog_version";
+
+    private static final ProductRowMapper PRODUCT_ROW_MAPPER = new ProductRowMapper();
 
     private final JdbcTemplate jdbcTemplate;
+    private final JdbcTemplate replicaJdbcTemplate;
+    private final int streamFetchSize;
+    private final int batchChunkSize;
+
+    @Autowired
+    public JdbcProductsDao(JdbcTemplate jdbcTemplate,
+                           ObjectProvider<ReadReplicas> readReplicas,
+                           @Value("${products.export.fetch-size:1000}") int streamFetchSize,
+                           @Value("${products.bulk.chunk-size:500}") int batchChunkSize) {
+        this(jdbcTemplate, readReplicas.stream().map(ReadReplicas::getJdbcTemplate).findFirst().orElse(jdbcTemplate),
+                streamFetchSize, batchChunkSize);
+    }
+
+    public JdbcProductsDao(JdbcTemplate jdbcTemplate, JdbcTemplate replicaJdbcTemplate, int streamFetchSize,
+                           int batchChunkSize) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.replicaJdbcTemplate = replicaJdbcTemplate;
+        this.streamFetchSize = streamFetchSize;
+        this.batchChunkSize = Math.max(1, Math.min(batchChunkSize, MAX_INSERT_CHUNK_SIZE));
+    }
 
     public List<Product> findAll() {
-        return jdbcTemplate.query(SELECT_ALL_PRODUCTS_SQL, PROPERTY_ROW_MAPPER);
+        return readJdbcTemplate().query(SELECT_ALL_PRODUCTS_SQL, PRODUCT_ROW_MAPPER);
+    }
+
+    public List<Product> findAll(ProductSort sort) {
+        return readJdbcTemplate().query(SELECT_ALL_PRODUCTS_SORTED_SQL.formatted(sort.getColumn()),
+                PRODUCT_ROW_MAPPER);
+    }
+
+    public List<Product> findPage(ProductSort sort, Product after, int limit) {
+        if (after == null) {
+            return readJdbcTemplate().query(SELECT_PRODUCTS_PAGE_SQL.formatted(sort.getColumn()), PRODUCT_ROW_MAPPER,
+                    limit);
+        }
+        return readJdbcTemplate().query(SELECT_PRODUCTS_PAGE_AFTER_SQL.formatted(sort.getColumn()), PRODUCT_ROW_MAPPER,
+                keyValue(sort, after), after.getId(), limit);
+    }
+
+    public List<Product> findPriceRange(String currency, long minPrice, long maxPrice, Product after, int limit) {
+        if (after == null) {
+            return readJdbcTemplate().query(SELECT_PRICE_RANGE_SQL, PRODUCT_ROW_MAPPER, currency, minPrice, maxPrice,
+                    limit);
+        }
+        return readJdbcTemplate().query(SELECT_PRICE_RANGE_AFTER_SQL, PRODUCT_ROW_MAPPER, currency, minPrice,
+                maxPrice, after.getPrice(), after.getId(), limit);
+    }
+
+    @Transactional(readOnly = true)
+    public void streamAll(Consumer<Product> consumer) {
+        jdbcTemplate.query(connection -> {
+            PreparedStatement preparedStatement = connection.prepareStatement(SELECT_ALL_PRODUCTS_ORDERED_BY_ID_SQL,
+                    ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+            preparedStatement.setFetchSize(streamFetchSize);
+            return preparedStatement;
+        }, resultSet -> {
+            consumer.accept(PRODUCT_ROW_MAPPER.mapRow(resultSet, resultSet.getRow()));
+        });
+    }
+
+    public Optional<CatalogVersion> findCatalogVersion() {
+        return readJdbcTemplate().query(SELECT_CATALOG_VERSION_SQL, (resultSet, rowNum) ->
+                        new CatalogVersion(resultSet.getLong(1), resultSet.getTimestamp(2).toInstant()))
+                .stream().findFirst();
     }
 
     public Optional<Product> findById(long id) {
-        return Optional.ofNullable(jdbcTemplate.queryForObject(SELECT_PRODUCT_BY_ID_SQL, PROPERTY_ROW_MAPPER, id));
+        return readJdbcTemplate().query(SELECT_PRODUCT_BY_ID_SQL, PRODUCT_ROW_MAPPER, id).stream().findFirst();
     }
 
     public List<Product> findByName(String name) {
-        return jdbcTemplate.query(SELECT_PRODUCT_BY_NAME_SQL, PROPERTY_ROW_MAPPER, name);
+        return readJdbcTemplate().query(SELECT_PRODUCT_BY_NAME_SQL, PRODUCT_ROW_MAPPER, name);
+    }
+
+    public List<Product> search(String query, int offset, int limit) {
+        String normalizedQuery = query.toLowerCase(Locale.ROOT);
+        String prefixPattern = escapeLikePattern(normalizedQuery) + "%";
+        if (normalizedQuery.length() < MIN_TRIGRAM_QUERY_LENGTH) {
+            Optional<String> upperBound = prefixUpperBound(normalizedQuery);
+            if (upperBound.isEmpty()) {
+                return readJdbcTemplate().query(SEARCH_PRODUCTS_BY_OPEN_PREFIX_SQL, PRODUCT_ROW_MAPPER,
+                        normalizedQuery, prefixPattern, limit, offset);
+            }
+            return readJdbcTemplate().query(SEARCH_PRODUCTS_BY_PREFIX_SQL, PRODUCT_ROW_MAPPER,
+                    normalizedQuery, upperBound.get(), prefixPattern, limit, offset);
+        }
+        return readJdbcTemplate().query(SEARCH_PRODUCTS_BY_SUBSTRING_SQL, PRODUCT_ROW_MAPPER,
+                "%" + prefixPattern, normalizedQuery, prefixPattern, normalizedQuery, limit, offset);
     }
 
     public long save(Product product) {
@@ -59,20 +219,186 @@ public class JdbcProductsDao implements ProductsDao {
         jdbcTemplate.update(connection -> {
             PreparedStatement preparedStatement = connection.prepareStatement(INSERT_PRODUCT_SQL, new String[]{"id"});
             preparedStatement.setString(1, product.getName());
-            preparedStatement.setDouble(2, product.getPrice());
-            preparedStatement.setTimestamp(3, Timestamp.valueOf(product.getCreationDate()));
+            preparedStatement.setLong(2, product.getPrice());
+            preparedStatement.setString(3, product.getCurrency());
+            preparedStatement.setTimestamp(4, Timestamp.valueOf(product.getCreationDate()));
             return preparedStatement;
         }, keyHolder);
 
-        return (long) Objects.requireNonNull(keyHolder.getKeys()).get("id");
+        return ((Number) Objects.requireNonNull(keyHolder.getKeys()).get("id")).longValue();
+    }
+
+    /**
+     * Inserts the products in multi-row chunks within one transaction, so a failing chunk leaves none of them saved.
+     */
+    @Transactional
+    public List<Long> saveAll(List<Product> products) {
+        List<Long> ids = new ArrayList<>(products.size());
+        for (int from = 0; from < products.size(); from += batchChunkSize) {
+            List<Product> chunk = products.subList(from, Math.min(from + batchChunkSize, products.size()));
+            KeyHolder keyHolder = new GeneratedKeyHolder();
+
+            jdbcTemplate.update(connection -> {
+                PreparedStatement preparedStatement = connection.prepareStatement(multiRowInsertSql(chunk.size()), new String[]{"id"});
+                int index = 1;
+                for (Product product : chunk) {
+                    preparedStatement.setString(index++, product.getName());
+                    preparedStatement.setLong(index++, product.getPrice());
+                    preparedStatement.setString(index++, product.getCurrency());
+                    preparedStatement.setTimestamp(index++, Timestamp.valueOf(product.getCreationDate()));
+                }
+                return preparedStatement;
+            }, keyHolder);
+
+            for (Map<String, Object> keys : keyHolder.getKeyList()) {
+                ids.add(((Number) keys.get("id")).longValue());
+            }
+        }
+        return ids;
+    }
+
+    public List<Long> reserveIds(int count) {
+        return jdbcTemplate.queryForList(RESERVE_PRODUCT_IDS_SQL, Long.class, count);
+    }
+
+    public int insertAll(List<Product> products) {
+        int chunkSize = Math.min(batchChunkSize, MAX_INSERT_WITH_IDS_CHUNK_SIZE);
+        int inserted = 0;
+        for (int from = 0; from < products.size(); from += chunkSize) {
+            List<Product> chunk = products.subList(from, Math.min(from + chunkSize, products.size()));
+
+            inserted += jdbcTemplate.update(connection -> {
+                PreparedStatement preparedStatement = connection.prepareStatement(multiRowInsertWithIdsSql(chunk.size()));
+                int index = 1;
+                for (Product product : chunk) {
+                    preparedStatement.setLong(index++, product.getId());
+                    preparedStatement.setString(index++, product.getName());
+                    preparedStatement.setLong(index++, product.getPrice());
+                    preparedStatement.setString(index++, product.getCurrency());
+                    preparedStatement.setTimestamp(index++, Timestamp.valueOf(product.getCreationDate()));
+                }
+                return preparedStatement;
+            });
+        }
+        return inserted;
+    }
+
+    public Optional<Product> update(Product product) {
+        return jdbcTemplate.query(UPDATE_PRODUCT_RETURNING_SQL, PRODUCT_ROW_MAPPER,
+                product.getName(), product.getPrice(), currency(product), product.getId()).stream().findFirst();
+    }
+
+    public Optional<Product> update(Product product, long expectedVersion) {
+        return jdbcTemplate.query(UPDATE_PRODUCT_VERSION_RETURNING_SQL, PRODUCT_ROW_MAPPER,
+                product.getName(), product.getPrice(), currency(product), product.getId(), expectedVersion)
+                .stream().findFirst();
+    }
+
+    /**
+     * Updates name and price, and the currency unless the product has none, in which case the stored one stays.
+     */
+    public int[] updateAll(List<Product> products) {
+        int[][] updateCounts = jdbcTemplate.batchUpdate(UPDATE_PRODUCT_SQL, products, batchChunkSize,
+                (preparedStatement, product) -> {
+                    preparedStatement.setString(1, product.getName());
+                    preparedStatement.setLong(2, product.getPrice());
+                    preparedStatement.setString(3, product.getCurrency());
+                    preparedStatement.setLong(4, product.getId());
+                });
+        return flatten(updateCounts, products.size());
+    }
+
+    public boolean delete(long id) {
+        return jdbcTemplate.update(DELETE_PRODUCT_SQL, id) > 0;
+    }
+
+    public int[] deleteAll(List<Long> ids) {
+        int[][] deleteCounts = jdbcTemplate.batchUpdate(DELETE_PRODUCT_SQL, ids, batchChunkSize,
+                (preparedStatement, id) -> preparedStatement.setLong(1, id));
+        return flatten(deleteCounts, ids.size());
+    }
+
+    /**
+     * The currency to bind for an update, typed so that a missing one goes out as a {@code VARCHAR} null for the
+     * {@code COALESCE} to replace with the stored currency.
+     */
+    private static SqlParameterValue currency(Product product) {
+        return new SqlParameterValue(Types.VARCHAR, product.getCurrency());
+    }
+
+    /**
+     * Reads go to the replicas unless they have to see the primary: inside a transaction, whose connection is bound
+     * to the primary, or while the current request is in its client's read-your-writes window.
+     */
+    private JdbcTemplate readJdbcTemplate() {
+        if (TransactionSynchronizationManager.isActualTransactionActive() || ReadRoutingContext.isPrimaryRequired()) {
+            return jdbcTemplate;
+        }
+        return replicaJdbcTemplate;
+    }
+
+    /**
+     * The least string above every string that starts with {@code prefix} in code point order, which is how
+     * {@code COLLATE "C"} orders UTF-8, or empty when no such string exists because the prefix is all
+     * {@code U+10FFFF}. Trailing code points that cannot be incremented are dropped, and so is an unpaired high
+     * surrogate, which no stored name contains; both only widen the range that the {@code LIKE} then narrows.
+     */
+    static Optional<String> prefixUpperBound(String prefix) {
+        int end = prefix.length();
+        if (end > 0 && Character.isHighSurrogate(prefix.charAt(end - 1))) {
+            end--;
+        }
+        while (end > 0) {
+            int codePoint = prefix.codePointBefore(end);
+            int start = end - Character.charCount(codePoint);
+            if (codePoint < Character.MAX_CODE_POINT) {
+                int next = codePoint + 1;
+                if (next >= Character.MIN_SURROGATE && next <= Character.MAX_SURROGATE) {
+                    next = Character.MAX_SURROGATE + 1;
+                }
+                return Optional.of(prefix.substring(0, start) + Character.toString(next));
+            }
+            end = start;
+        }
+        return Optional.empty();
+    }
+
+    private String escapeLikePattern(String value) {
+        return value.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_");
+    }
+
+    private String multiRowInsertSql(int rows) {
+        StringJoiner values = new StringJoiner(", ", INSERT_PRODUCTS_SQL, "");
+        for (int i = 0; i < rows; i++) {
+            values.add(INSERT_PRODUCTS_VALUES_SQL);
+        }
+        return values.toString();
+    }
+
+    private String multiRowInsertWithIdsSql(int rows) {
+        StringJoiner values = new StringJoiner(", ", INSERT_PRODUCTS_WITH_IDS_SQL, INSERT_PRODUCTS_WITH_IDS_CONFLICT_SQL);
+        for (int i = 0; i < rows; i++) {
+            values.add(INSERT_PRODUCTS_WITH_IDS_VALUES_SQL);
+        }
+        return values.toString();
     }
 
-    public void update(Product product) {
-        jdbcTemplate.update(UPDATE_PRODUCT_SQL, product.getName(), product.getPrice(), product.getId());
+    private int[] flatten(int[][] chunkCounts, int size) {
+        int[] counts = new int[size];
+        int index = 0;
+        for (int[] chunk : chunkCounts) {
+            System.arraycopy(chunk, 0, counts, index, chunk.length);
+            index += chunk.length;
+        }
+        return counts;
     }
 
-    public void delete(long id) {
-        jdbcTemplate.update(DELETE_PRODUCT_SQL, id);
+    private Object keyValue(ProductSort sort, Product after) {
+        return switch (sort) {
+            case PRICE -> after.getPrice();
+            case DATE -> Timestamp.valueOf(after.getCreationDate());
+            default -> after.getName();
+        };
     }
 }
 
@@ -0,0 +1,33 @@
+package com.kopylov.springbootonlineshop.dao.jdbc;
+
+import com.kopylov.springbootonlineshop.model.Product;
+import org.springframework.jdbc.core.RowMapper;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+/**
+ * Maps the {@code id, name, price, currency, creation_date, version} projection used by every product query by column index,
+ * without the per-row reflection and type conversion of {@code BeanPropertyRowMapper}.
+ */
+public class ProductRowMapper implements RowMapper<Product> {
+
+    private static final int ID = 1;
+    private static final int NAME = 2;
+    private static final int PRICE = 3;
+    private static final int CURRENCY = 4;
+    private static final int CREATION_DATE = 5;
+    private static final int VERSION = 6;
+
+    @Override
+    public Product mapRow(ResultSet resultSet, int rowNum) throws SQLException {
+        return new Product(
+                resultSet.getLong(ID),
+                resultSet.getString(NAME),
+                resultSet.getLong(PRICE),
+                resultSet.getString(CURRENCY),
+                resultSet.getObject(CREATION_DATE, LocalDateTime.class),
+                resultSet.getLong(VERSION));
+    }
+}
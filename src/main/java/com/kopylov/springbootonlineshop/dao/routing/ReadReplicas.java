@@ -0,0 +1,34 @@
+package com.kopylov.springbootonlineshop.dao.routing;
+
+import com.zaxxer.hikari.HikariDataSource;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import javax.sql.DataSource;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Connection pools of the read replicas and the {@link JdbcTemplate} that reads through them. Deliberately not a
+ * {@link DataSource} bean itself, so the auto-configured primary datasource and its {@link JdbcTemplate} stay in
+ * place.
+ */
+public class ReadReplicas implements DisposableBean {
+
+    private final List<HikariDataSource> pools;
+    private final JdbcTemplate jdbcTemplate;
+
+    public ReadReplicas(DataSource primary, List<HikariDataSource> pools, Duration retryAfter) {
+        this.pools = List.copyOf(pools);
+        this.jdbcTemplate = new JdbcTemplate(new ReplicaDataSource(primary, List.copyOf(pools), retryAfter));
+    }
+
+    public JdbcTemplate getJdbcTemplate() {
+        return jdbcTemplate;
+    }
+
+    @Override
+    public void destroy() {
+        pools.forEach(HikariDataSource::close);
+    }
+}
@@ -0,0 +1,70 @@
+package com.kopylov.springbootonlineshop.dao.routing;
+
+import java.util.function.IntSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Per-thread routing decisions for reads, opened and closed around each web request. A context can require the
+ * primary, for the read-your-writes window after a client's own write, and otherwise remembers the replica its
+ * first read went to, so that every read in the request sees the same replica and never goes back in time.
+ * Threads without an open context, such as async workers, route each read independently.
+ */
+public final class ReadRoutingContext {
+
+    private static final ThreadLocal<ReadRoutingContext> CURRENT = new ThreadLocal<>();
+
+    private final boolean primaryRequired;
+    private int replica = -1;
+
+    private ReadRoutingContext(boolean primaryRequired) {
+        this.primaryRequired = primaryRequired;
+    }
+
+    public static void open(boolean primaryRequired) {
+        CURRENT.set(new ReadRoutingContext(primaryRequired));
+    }
+
+    public static void close() {
+        CURRENT.remove();
+    }
+
+    /**
+     * Runs {@code reads} against the primary, whatever the current context says, and restores that context after.
+     */
+    public static <T> T onPrimary(Supplier<T> reads) {
+        ReadRoutingContext previous = CURRENT.get();
+        CURRENT.set(new ReadRoutingContext(true));
+        try {
+            return reads.get();
+        } finally {
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    public static boolean isPrimaryRequired() {
+        ReadRoutingContext context = CURRENT.get();
+        return context != null && context.primaryRequired;
+    }
+
+    static int replica(IntSupplier chooser) {
+        ReadRoutingContext context = CURRENT.get();
+        if (context == null) {
+            return chooser.getAsInt();
+        }
+        if (context.replica < 0) {
+            context.replica = chooser.getAsInt();
+        }
+        return context.replica;
+    }
+
+    static void stick(int replica) {
+        ReadRoutingContext context = CURRENT.get();
+        if (context != null) {
+            context.replica = replica;
+        }
+    }
+}
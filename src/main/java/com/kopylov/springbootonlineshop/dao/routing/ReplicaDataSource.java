@@ -0,0 +1,66 @@
+package com.kopylov.springbootonlineshop.dao.routing;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Spreads read connections round-robin over the replica pools, keeping to the replica chosen by the current
+ * {@link ReadRoutingContext}. A replica that cannot hand out a connection is skipped for {@code retryAfter}, and the
+ * primary is the last resort, so losing every replica degrades to the single-database setup instead of failing
+ * reads or paying a connection timeout on each of them.
+ */
+@Slf4j
+class ReplicaDataSource extends AbstractDataSource {
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final long retryAfterNanos;
+    private final AtomicLongArray unavailableUntil;
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReplicaDataSource(DataSource primary, List<DataSource> replicas, Duration retryAfter) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.retryAfterNanos = retryAfter.toNanos();
+        this.unavailableUntil = new AtomicLongArray(replicas.size());
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        int count = replicas.size();
+        int first = ReadRoutingContext.replica(() -> Math.floorMod(next.getAndIncrement(), count));
+        for (int attempt = 0; attempt < count; attempt++) {
+            int replica = (first + attempt) % count;
+            long now = System.nanoTime();
+            if (now - unavailableUntil.get(replica) < 0) {
+                continue;
+            }
+            try {
+                Connection connection = replicas.get(replica).getConnection();
+                if (attempt > 0) {
+                    ReadRoutingContext.stick(replica);
+                }
+                return connection;
+            } catch (SQLException e) {
+                unavailableUntil.set(replica, now + retryAfterNanos);
+                log.warn("Read replica {} is unavailable, retrying it in {} ms: {}", replica,
+                        retryAfterNanos / 1_000_000, e.getMessage());
+            }
+        }
+        return primary.getConnection();
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("Replica connections use the configured credentials");
+    }
+}
@@ -0,0 +1,326 @@
+package com.kopylov.springbootonlineshop.dao.snapshot;
+
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable column-oriented copy of the catalog. Rows are kept in id order in primitive arrays, and each
+ * {@link ProductSort} has a permutation of row indexes in its sort order, so a sorted listing is a walk over one
+ * {@code int[]}. Ties are broken by id, which is the row order. Adding, replacing or removing a product builds a
+ * new snapshot with array copies and one binary search per permutation instead of re-sorting.
+ */
+final class ProductSnapshot {
+
+    private static final ProductSort[] SORTS = ProductSort.values();
+
+    private final long catalogVersion;
+    private final long[] ids;
+    private final String[] names;
+    private final long[] prices;
+    private final String[] currencies;
+    private final long[] creationMicros;
+    private final long[] versions;
+    private final int[][] orders;
+
+    private ProductSnapshot(long catalogVersion, long[] ids, String[] names, long[] prices, String[] currencies,
+                            long[] creationMicros, long[] versions) {
+        this.catalogVersion = catalogVersion;
+        this.ids = ids;
+        this.names = names;
+        this.prices = prices;
+        this.currencies = currencies;
+        this.creationMicros = creationMicros;
+        this.versions = versions;
+        this.orders = new int[SORTS.length][];
+    }
+
+    static ProductSnapshot of(long catalogVersion, List<Product> products) {
+        Product[] rows = products.toArray(new Product[0]);
+        Arrays.sort(rows, Comparator.comparingLong(Product::getId));
+        int size = rows.length;
+
+        ProductSnapshot snapshot = new ProductSnapshot(catalogVersion, new long[size], new String[size],
+                new long[size], new String[size], new long[size], new long[size]);
+        for (int row = 0; row < size; row++) {
+            snapshot.set(row, rows[row]);
+        }
+        int[] buffer = new int[size];
+        for (ProductSort sort : SORTS) {
+            int[] order = new int[size];
+            for (int row = 0; row < size; row++) {
+                order[row] = row;
+            }
+            snapshot.mergeSort(sort, order, buffer, 0, size);
+            snapshot.orders[sort.ordinal()] = order;
+        }
+        return snapshot;
+    }
+
+    long getCatalogVersion() {
+        return catalogVersion;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    List<Product> sorted(ProductSort sort) {
+        int[] order = orders[sort.ordinal()];
+        List<Product> products = new ArrayList<>(order.length);
+        for (int row : order) {
+            products.add(product(row));
+        }
+        return products;
+    }
+
+    /**
+     * Returns up to {@code limit} products in {@code currency} priced from {@code minPrice} to {@code maxPrice}, in
+     * price then id order and after {@code after} when it is given. The start is two binary searches over the price
+     * order; from there rows in other currencies are skipped until a price passes {@code maxPrice}.
+     */
+    List<Product> priceRange(String currency, long minPrice, long maxPrice, Product after, int limit) {
+        int[] order = orders[ProductSort.PRICE.ordinal()];
+        int from = firstAfter(order, minPrice, Long.MIN_VALUE);
+        if (after != null) {
+            from = Math.max(from, firstAfter(order, after.getPrice(), after.getId()));
+        }
+        List<Product> products = new ArrayList<>(Math.min(limit, order.length - from));
+        for (int i = from; i < order.length && products.size() < limit && prices[order[i]] <= maxPrice; i++) {
+            if (currency.equals(currencies[order[i]])) {
+                products.add(product(order[i]));
+            }
+        }
+        return products;
+    }
+
+    /**
+     * Returns a snapshot at {@code nextCatalogVersion} where {@code product} replaces the row with the same id, or is
+     * inserted if there is none.
+     */
+    ProductSnapshot withProduct(long nextCatalogVersion, Product product) {
+        int size = ids.length;
+        int found = Arrays.binarySearch(ids, product.getId());
+        if (found >= 0) {
+            ProductSnapshot next = new ProductSnapshot(nextCatalogVersion, ids.clone(), names.clone(), prices.clone(),
+                    currencies.clone(), creationMicros.clone(), versions.clone());
+            next.set(found, product);
+            for (ProductSort sort : SORTS) {
+                int[] order = remove(orders[sort.ordinal()], found, false);
+                next.orders[sort.ordinal()] = next.insert(sort, order, found);
+            }
+            return next;
+        }
+
+        int row = -found - 1;
+        ProductSnapshot next = new ProductSnapshot(nextCatalogVersion, insertAt(ids, row), insertAt(names, row),
+                insertAt(prices, row), insertAt(currencies, row), insertAt(creationMicros, row),
+                insertAt(versions, row));
+        next.set(row, product);
+        for (ProductSort sort : SORTS) {
+            int[] order = orders[sort.ordinal()];
+            int[] shifted = new int[size];
+            for (int i = 0; i < size; i++) {
+                shifted[i] = order[i] >= row ? order[i] + 1 : order[i];
+            }
+            next.orders[sort.ordinal()] = next.insert(sort, shifted, row);
+        }
+        return next;
+    }
+
+    /**
+     * Returns a snapshot at {@code nextCatalogVersion} without the product with {@code id}.
+     */
+    ProductSnapshot withoutProduct(long nextCatalogVersion, long id) {
+        int row = Arrays.binarySearch(ids, id);
+        ProductSnapshot next;
+        if (row < 0) {
+            next = new ProductSnapshot(nextCatalogVersion, ids, names, prices, currencies, creationMicros, versions);
+            System.arraycopy(orders, 0, next.orders, 0, orders.length);
+            return next;
+        }
+        next = new ProductSnapshot(nextCatalogVersion, removeAt(ids, row), removeAt(names, row),
+                removeAt(prices, row), removeAt(currencies, row), removeAt(creationMicros, row),
+                removeAt(versions, row));
+        for (ProductSort sort : SORTS) {
+            next.orders[sort.ordinal()] = remove(orders[sort.ordinal()], row, true);
+        }
+        return next;
+    }
+
+    private void set(int row, Product product) {
+        ids[row] = product.getId();
+        names[row] = product.getName() == null ? null : product.getName().intern();
+        prices[row] = product.getPrice();
+        currencies[row] = product.getCurrency() == null ? null : product.getCurrency().intern();
+        creationMicros[row] = toEpochMicros(product.getCreationDate());
+        versions[row] = product.getVersion();
+    }
+
+    private Product product(int row) {
+        return new Product(ids[row], names[row], prices[row], currencies[row], toLocalDateTime(creationMicros[row]),
+                versions[row]);
+    }
+
+    private int compare(ProductSort sort, int left, int right) {
+        int result = switch (sort) {
+            case NAME -> compareNames(names[left], names[right]);
+            case PRICE -> Long.compare(prices[left], prices[right]);
+            case DATE -> compareDates(creationMicros[left], creationMicros[right]);
+        };
+        return result != 0 ? result : Integer.compare(left, right);
+    }
+
+    /**
+     * Orders names as {@code ORDER BY name COLLATE "C"} does: by code point, which for a supplementary character
+     * differs from {@link String#compareTo}'s order of UTF-16 units, and with missing names last.
+     */
+    static int compareNames(String left, String right) {
+        if (left == null || right == null) {
+            return left == null ? (right == null ? 0 : 1) : -1;
+        }
+        int length = Math.min(left.length(), right.length());
+        for (int i = 0; i < length; i++) {
+            char leftChar = left.charAt(i);
+            char rightChar = right.charAt(i);
+            if (leftChar != rightChar) {
+                // A surrogate stands for a code point above U+FFFF, so it sorts after every other unit.
+                if (Character.isSurrogate(leftChar) != Character.isSurrogate(rightChar)) {
+                    return Character.isSurrogate(leftChar) ? 1 : -1;
+                }
+                return leftChar - rightChar;
+            }
+        }
+        return left.length() - right.length();
+    }
+
+    /**
+     * Orders creation dates as {@code ORDER BY creation_date} does, with missing dates, stored as
+     * {@link Long#MIN_VALUE}, last.
+     */
+    private static int compareDates(long left, long right) {
+        if (left == Long.MIN_VALUE || right == Long.MIN_VALUE) {
+            return left == right ? 0 : (left == Long.MIN_VALUE ? 1 : -1);
+        }
+        return Long.compare(left, right);
+    }
+
+    /**
+     * Returns the first position in {@code order}, the price order, whose price and id are past {@code price} and
+     * {@code id}.
+     */
+    private int firstAfter(int[] order, long price, long id) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            int row = order[middle];
+            if (prices[row] < price || prices[row] == price && ids[row] <= id) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int[] insert(ProductSort sort, int[] order, int row) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compare(sort, order[middle], row) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        int[] inserted = new int[order.length + 1];
+        System.arraycopy(order, 0, inserted, 0, low);
+        inserted[low] = row;
+        System.arraycopy(order, low, inserted, low + 1, order.length - low);
+        return inserted;
+    }
+
+    private static int[] remove(int[] order, int row, boolean shift) {
+        int[] removed = new int[order.length - 1];
+        int target = 0;
+        for (int value : order) {
+            if (value != row) {
+                removed[target++] = shift && value > row ? value - 1 : value;
+            }
+        }
+        return removed;
+    }
+
+    private void mergeSort(ProductSort sort, int[] order, int[] buffer, int from, int to) {
+        if (to - from < 2) {
+            return;
+        }
+        int middle = (from + to) >>> 1;
+        mergeSort(sort, order, buffer, from, middle);
+        mergeSort(sort, order, buffer, middle, to);
+        if (compare(sort, order[middle - 1], order[middle]) <= 0) {
+            return;
+        }
+        System.arraycopy(order, from, buffer, from, to - from);
+        int left = from;
+        int right = middle;
+        for (int i = from; i < to; i++) {
+            if (right >= to || left < middle && compare(sort, buffer[left], buffer[right]) <= 0) {
+                order[i] = buffer[left++];
+            } else {
+                order[i] = buffer[right++];
+            }
+        }
+    }
+
+    private static long toEpochMicros(LocalDateTime dateTime) {
+        if (dateTime == null) {
+            return Long.MIN_VALUE;
+        }
+        return dateTime.toEpochSecond(ZoneOffset.UTC) * 1_000_000 + dateTime.getNano() / 1_000;
+    }
+
+    private static LocalDateTime toLocalDateTime(long epochMicros) {
+        if (epochMicros == Long.MIN_VALUE) {
+            return null;
+        }
+        return LocalDateTime.ofEpochSecond(Math.floorDiv(epochMicros, 1_000_000),
+                (int) Math.floorMod(epochMicros, 1_000_000) * 1_000, ZoneOffset.UTC);
+    }
+
+    private static long[] insertAt(long[] values, int index) {
+        long[] inserted = new long[values.length + 1];
+        System.arraycopy(values, 0, inserted, 0, index);
+        System.arraycopy(values, index, inserted, index + 1, values.length - index);
+        return inserted;
+    }
+
+    private static String[] insertAt(String[] values, int index) {
+        String[] inserted = new String[values.length + 1];
+        System.arraycopy(values, 0, inserted, 0, index);
+        System.arraycopy(values, index, inserted, index + 1, values.length - index);
+        return inserted;
+    }
+
+    private static long[] removeAt(long[] values, int index) {
+        long[] removed = new long[values.length - 1];
+        System.arraycopy(values, 0, removed, 0, index);
+        System.arraycopy(values, index + 1, removed, index, values.length - index - 1);
+        return removed;
+    }
+
+    private static String[] removeAt(String[] values, int index) {
+        String[] removed = new String[values.length - 1];
+        System.arraycopy(values, 0, removed, 0, index);
+        System.arraycopy(values, index + 1, removed, index, values.length - index - 1);
+        return removed;
+    }
+}
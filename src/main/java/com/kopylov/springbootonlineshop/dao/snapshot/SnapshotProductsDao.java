@@ -0,0 +1,218 @@
+package com.kopylov.springbootonlineshop.dao.snapshot;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Serves sorted listings and price ranges from an in-memory {@link ProductSnapshot} in front of another
+ * {@link ProductsDao}.
+ * <p>
+ * The snapshot is tagged with the catalog version it reflects. Every listing compares that tag with the database's
+ * catalog version, a primary-key read, and reloads the snapshot when the database is ahead, so writes from other
+ * instances are seen on the next listing. A database behind the tag is a lagging read replica; the snapshot is
+ * newer than what it would return and is served as is.
+ * <p>
+ * Single-product writes made through this DAO read the catalog version in the same transaction, while the write
+ * still holds the catalog row; if it is exactly one past the snapshot's, the change is applied to the snapshot in
+ * place once the transaction has committed. Anything less certain, including bulk writes, drops the snapshot and
+ * leaves the reload to the next listing.
+ */
+public class SnapshotProductsDao implements ProductsDao {
+
+    private final ProductsDao delegate;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate loadTransactionTemplate;
+    private volatile ProductSnapshot snapshot;
+
+    public SnapshotProductsDao(ProductsDao delegate, TransactionTemplate transactionTemplate) {
+        this.delegate = delegate;
+        this.transactionTemplate = transactionTemplate;
+        this.loadTransactionTemplate = new TransactionTemplate(transactionTemplate.getTransactionManager());
+        this.loadTransactionTemplate.setReadOnly(true);
+        this.loadTransactionTemplate.setIsolationLevel(TransactionDefinition.ISOLATION_REPEATABLE_READ);
+    }
+
+    @Override
+    public List<Product> findAll(ProductSort sort) {
+        Optional<CatalogVersion> catalogVersion = delegate.findCatalogVersion();
+        if (catalogVersion.isEmpty()) {
+            return delegate.findAll(sort);
+        }
+        return currentSnapshot(catalogVersion.get().getVersion()).sorted(sort);
+    }
+
+    @Override
+    public long save(Product product) {
+        Write<Long> write = write(() -> delegate.save(product));
+        long id = write.result;
+        apply(write, current -> current.withProduct(write.catalogVersion, product.toBuilder().id(id).build()));
+        return id;
+    }
+
+    @Override
+    public List<Long> saveAll(List<Product> products) {
+        List<Long> ids = delegate.saveAll(products);
+        snapshot = null;
+        return ids;
+    }
+
+    @Override
+    public List<Long> reserveIds(int count) {
+        return delegate.reserveIds(count);
+    }
+
+    @Override
+    public int insertAll(List<Product> products) {
+        int inserted = delegate.insertAll(products);
+        snapshot = null;
+        return inserted;
+    }
+
+    @Override
+    public Optional<Product> findById(long id) {
+        return delegate.findById(id);
+    }
+
+    @Override
+    public List<Product> findByName(String name) {
+        return delegate.findByName(name);
+    }
+
+    @Override
+    public List<Product> search(String query, int offset, int limit) {
+        return delegate.search(query, offset, limit);
+    }
+
+    @Override
+    public List<Product> findAll() {
+        return delegate.findAll();
+    }
+
+    @Override
+    public List<Product> findPage(ProductSort sort, Product after, int limit) {
+        return delegate.findPage(sort, after, limit);
+    }
+
+    @Override
+    public List<Product> findPriceRange(String currency, long minPrice, long maxPrice, Product after, int limit) {
+        Optional<CatalogVersion> catalogVersion = delegate.findCatalogVersion();
+        if (catalogVersion.isEmpty()) {
+            return delegate.findPriceRange(currency, minPrice, maxPrice, after, limit);
+        }
+        return currentSnapshot(catalogVersion.get().getVersion()).priceRange(currency, minPrice, maxPrice, after,
+                limit);
+    }
+
+    @Override
+    public void streamAll(Consumer<Product> consumer) {
+        delegate.streamAll(consumer);
+    }
+
+    @Override
+    public Optional<CatalogVersion> findCatalogVersion() {
+        return delegate.findCatalogVersion();
+    }
+
+    @Override
+    public Optional<Product> update(Product product) {
+        Write<Optional<Product>> write = write(() -> delegate.update(product));
+        apply(write, current -> write.result.map(updated -> current.withProduct(write.catalogVersion, updated))
+                .orElse(null));
+        return write.result;
+    }
+
+    @Override
+    public Optional<Product> update(Product product, long expectedVersion) {
+        Write<Optional<Product>> write = write(() -> delegate.update(product, expectedVersion));
+        apply(write, current -> write.result.map(updated -> current.withProduct(write.catalogVersion, updated))
+                .orElse(null));
+        return write.result;
+    }
+
+    @Override
+    public int[] updateAll(List<Product> products) {
+        int[] updateCounts = delegate.updateAll(products);
+        snapshot = null;
+        return updateCounts;
+    }
+
+    @Override
+    public boolean delete(long id) {
+        Write<Boolean> write = write(() -> delegate.delete(id));
+        apply(write, current -> write.result ? current.withoutProduct(write.catalogVersion, id) : null);
+        return write.result;
+    }
+
+    @Override
+    public int[] deleteAll(List<Long> ids) {
+        int[] deleteCounts = delegate.deleteAll(ids);
+        snapshot = null;
+        return deleteCounts;
+    }
+
+    private ProductSnapshot currentSnapshot(long catalogVersion) {
+        ProductSnapshot current = snapshot;
+        if (current != null && current.getCatalogVersion() >= catalogVersion) {
+            return current;
+        }
+        synchronized (this) {
+            current = snapshot;
+            if (current == null || current.getCatalogVersion() < catalogVersion) {
+                current = load();
+                snapshot = current;
+            }
+            return current;
+        }
+    }
+
+    /**
+     * Reads the tag and the rows in one repeatable-read transaction, which pins both reads to the primary
+     * connection and one database snapshot. The version that triggered the load may come from a replica, whose
+     * rows could be older than the version another replica reported.
+     */
+    private ProductSnapshot load() {
+        return loadTransactionTemplate.execute(status -> ProductSnapshot.of(
+                delegate.findCatalogVersion().map(CatalogVersion::getVersion).orElse(-1L), delegate.findAll()));
+    }
+
+    private <T> Write<T> write(Supplier<T> operation) {
+        return transactionTemplate.execute(status -> {
+            T result = operation.get();
+            long catalogVersion = delegate.findCatalogVersion().map(CatalogVersion::getVersion).orElse(-1L);
+            return new Write<>(result, catalogVersion);
+        });
+    }
+
+    /**
+     * Applies a committed write to the snapshot. {@code change} returns {@code null} when the write did not change
+     * a row, in which case a moved catalog version can only come from someone else.
+     */
+    private synchronized void apply(Write<?> write, Function<ProductSnapshot, ProductSnapshot> change) {
+        ProductSnapshot current = snapshot;
+        if (current == null || write.catalogVersion <= current.getCatalogVersion()) {
+            return;
+        }
+        snapshot = write.catalogVersion == current.getCatalogVersion() + 1 ? change.apply(current) : null;
+    }
+
+    private static final class Write<T> {
+
+        private final T result;
+        private final long catalogVersion;
+
+        private Write(T result, long catalogVersion) {
+            this.result = result;
+            this.catalogVersion = catalogVersion;
+        }
+    }
+}
@@ -0,0 +1,21 @@
+package com.kopylov.springbootonlineshop.dto;
+
+import lombok.*;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkItemResult {
+
+    private int index;
+
+    private Long id;
+
+    private BulkItemStatus status;
+
+    private List<String> errors;
+}
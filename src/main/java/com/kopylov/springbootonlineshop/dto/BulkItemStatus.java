@@ -0,0 +1,9 @@
+package com.kopylov.springbootonlineshop.dto;
+
+public enum BulkItemStatus {
+    CREATED,
+    UPDATED,
+    DELETED,
+    NOT_FOUND,
+    INVALID
+}
@@ -3,6 +3,7 @@ package com.kopylov.springbootonlineshop.dto;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotEmpty;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
 import lombok.*;
 
@@ -17,13 +18,18 @@ public class ProductDto {
     private long id;
 
     @NotEmpty(message = "Product name should not be empty")
-    @Size(min = 2, max = 30, message = "Product name should be between 2 and 30 characters")
+    @Size(min = 2, max = 20, message = "Product name should be between 2 and 20 characters")
     private String name;
 
     @Min(value = 0, message = "Price should be greater than 0")
-    private double price;
+    private long price;
+
+    @Pattern(regexp = "[A-Z]{3}", message = "Currency should be an ISO 4217 code")
+    private String currency;
 
     @NotNull(message = "Creation date should not be null")
     private LocalDateTime creationDate;
+
+    private long version;
 }
 
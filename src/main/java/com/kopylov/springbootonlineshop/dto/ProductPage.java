@@ -0,0 +1,18 @@
+package com.kopylov.springbootonlineshop.dto;
+
+import com.kopylov.springbootonlineshop.model.Product;
+import lombok.*;
+
+import java.util.List;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductPage {
+
+    private List<Product> products;
+
+    private String nextCursor;
+}
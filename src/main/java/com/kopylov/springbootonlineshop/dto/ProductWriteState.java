@@ -0,0 +1,7 @@
+package com.kopylov.springbootonlineshop.dto;
+
+public enum ProductWriteState {
+    PENDING,
+    PERSISTED,
+    FAILED
+}
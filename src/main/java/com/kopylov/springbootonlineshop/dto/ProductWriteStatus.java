@@ -0,0 +1,19 @@
+package com.kopylov.springbootonlineshop.dto;
+
+import lombok.*;
+
+@Setter
+@Getter
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class ProductWriteStatus {
+
+    private long id;
+
+    private ProductWriteState state;
+
+    private int attempts;
+
+    private String error;
+}
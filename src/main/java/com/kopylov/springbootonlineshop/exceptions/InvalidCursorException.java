@@ -0,0 +1,8 @@
+package com.kopylov.springbootonlineshop.exceptions;
+
+public class InvalidCursorException extends RuntimeException {
+
+    public InvalidCursorException(String message) {
+        super(message);
+    }
+}
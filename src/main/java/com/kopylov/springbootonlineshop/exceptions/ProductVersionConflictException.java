@@ -0,0 +1,8 @@
+package com.kopylov.springbootonlineshop.exceptions;
+
+public class ProductVersionConflictException extends RuntimeException {
+
+    public ProductVersionConflictException(String message) {
+        super(message);
+    }
+}
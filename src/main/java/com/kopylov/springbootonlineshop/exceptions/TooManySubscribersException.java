@@ -0,0 +1,8 @@
+package com.kopylov.springbootonlineshop.exceptions;
+
+public class TooManySubscribersException extends RuntimeException {
+
+    public TooManySubscribersException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,12 @@
+package com.kopylov.springbootonlineshop.exceptions;
+
+public class WriteBehindRejectedException extends RuntimeException {
+
+    public WriteBehindRejectedException(String message) {
+        super(message);
+    }
+
+    public WriteBehindRejectedException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
@@ -0,0 +1,84 @@
+package com.kopylov.springbootonlineshop.metrics;
+
+import com.kopylov.springbootonlineshop.exceptions.ProductNotFoundException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every {@code JdbcProductsDao} query and every {@code ProductService} operation, records the size of
+ * list results and counts lookups that end in {@link ProductNotFoundException}.
+ */
+@Aspect
+@Component
+public class ProductMetricsAspect {
+
+    static final String DAO_TIMER = "products.dao";
+    static final String SERVICE_TIMER = "products.service";
+    static final String RESULT_SIZE = "products.dao.result.size";
+    static final String NOT_FOUND = "products.not.found";
+
+    private static final double[] PERCENTILES = {0.5, 0.95, 0.99};
+
+    private final MeterRegistry meterRegistry;
+    private final Map<String, Timer> timers = new ConcurrentHashMap<>();
+    private final Map<String, DistributionSummary> resultSizes = new ConcurrentHashMap<>();
+    private final Map<String, Counter> notFoundCounters = new ConcurrentHashMap<>();
+
+    public ProductMetricsAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.kopylov.springbootonlineshop.dao.jdbc.JdbcProductsDao.*(..))")
+    public Object timeDaoQuery(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        Object result = time(DAO_TIMER, operation, joinPoint);
+        if (result instanceof Collection<?> collection) {
+            resultSizes.computeIfAbsent(operation, key -> DistributionSummary.builder(RESULT_SIZE)
+                            .description("Number of products returned by a DAO query")
+                            .tag("operation", key)
+                            .publishPercentiles(PERCENTILES)
+                            .register(meterRegistry))
+                    .record(collection.size());
+        }
+        return result;
+    }
+
+    @Around("execution(public * com.kopylov.springbootonlineshop.services.ProductService+.*(..))")
+    public Object timeServiceOperation(ProceedingJoinPoint joinPoint) throws Throwable {
+        String operation = joinPoint.getSignature().getName();
+        try {
+            return time(SERVICE_TIMER, operation, joinPoint);
+        } catch (ProductNotFoundException e) {
+            notFoundCounters.computeIfAbsent(operation, key -> Counter.builder(NOT_FOUND)
+                            .description("Product lookups that did not find the requested product")
+                            .tag("operation", key)
+                            .register(meterRegistry))
+                    .increment();
+            throw e;
+        }
+    }
+
+    private Object time(String name, String operation, ProceedingJoinPoint joinPoint) throws Throwable {
+        Timer timer = timers.computeIfAbsent(name + '.' + operation, key -> Timer.builder(name)
+                .tag("operation", operation)
+                .publishPercentiles(PERCENTILES)
+                .register(meterRegistry));
+        long start = System.nanoTime();
+        try {
+            return joinPoint.proceed();
+        } finally {
+            timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+}
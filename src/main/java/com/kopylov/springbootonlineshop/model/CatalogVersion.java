@@ -0,0 +1,15 @@
+package com.kopylov.springbootonlineshop.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class CatalogVersion {
+
+    private final long version;
+    private final Instant lastModified;
+
+}
@@ -0,0 +1,42 @@
+package com.kopylov.springbootonlineshop.model;
+
+import java.math.BigDecimal;
+import java.util.Currency;
+
+/**
+ * Conversions for prices, which are held everywhere as a {@code long} count of the currency's minor units (cents
+ * for USD) next to an ISO 4217 currency code. Amounts only become decimals at the edges that show them to people.
+ */
+public final class Money {
+
+    /**
+     * Currency of products written without one, and of every price that predates the currency column.
+     */
+    public static final String DEFAULT_CURRENCY = "USD";
+
+    private static final int DEFAULT_FRACTION_DIGITS = 2;
+
+    private Money() {
+    }
+
+    public static String currencyOrDefault(String currency) {
+        return currency == null ? DEFAULT_CURRENCY : currency;
+    }
+
+    /**
+     * Returns the decimal amount of {@code minorUnits}, for example {@code 1999} USD as {@code 19.99}. Codes the JDK
+     * does not know, or that have no minor unit such as XAU, are taken to have two decimal places.
+     */
+    public static BigDecimal toDecimal(long minorUnits, String currency) {
+        return BigDecimal.valueOf(minorUnits, fractionDigits(currency));
+    }
+
+    private static int fractionDigits(String currency) {
+        try {
+            int fractionDigits = Currency.getInstance(currencyOrDefault(currency)).getDefaultFractionDigits();
+            return fractionDigits < 0 ? DEFAULT_FRACTION_DIGITS : fractionDigits;
+        } catch (IllegalArgumentException e) {
+            return DEFAULT_FRACTION_DIGITS;
+        }
+    }
+}
@@ -12,12 +12,17 @@ import java.time.LocalDateTime;
 @Getter
 @AllArgsConstructor
 @NoArgsConstructor
-@Builder
+@Builder(toBuilder = true)
 public class Product {
 
     private long id;
     private String name;
-    private double price;
+    /**
+     * Price in minor units of {@link #currency}, see {@link Money}.
+     */
+    private long price;
+    private String currency;
     private LocalDateTime creationDate;
+    private long version;
 
 }
@@ -0,0 +1,22 @@
+package com.kopylov.springbootonlineshop.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+/**
+ * One row of the {@code product_changes} outbox. {@code product} is the row after an insert or update and the row
+ * as it was before a delete; it is {@code null} for a truncate.
+ */
+@Getter
+@AllArgsConstructor
+public class ProductChange {
+
+    private final long offset;
+    private final long catalogVersion;
+    private final ProductChangeType type;
+    private final Product product;
+    private final Instant changedAt;
+
+}
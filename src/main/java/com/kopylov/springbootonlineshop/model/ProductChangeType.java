@@ -0,0 +1,8 @@
+package com.kopylov.springbootonlineshop.model;
+
+public enum ProductChangeType {
+    INSERT,
+    UPDATE,
+    DELETE,
+    TRUNCATE
+}
@@ -0,0 +1,38 @@
+package com.kopylov.springbootonlineshop.model;
+
+import java.util.Objects;
+
+public enum ProductSort {
+
+    /**
+     * Names sort by code point, whatever the database collation, the same order as the in-memory snapshot.
+     */
+    NAME("name", "name COLLATE \"C\""),
+    PRICE("price", "price"),
+    DATE("date", "creation_date");
+
+    private final String criteria;
+    private final String column;
+
+    ProductSort(String criteria, String column) {
+        this.criteria = criteria;
+        this.column = column;
+    }
+
+    public String getCriteria() {
+        return criteria;
+    }
+
+    public String getColumn() {
+        return column;
+    }
+
+    public static ProductSort fromCriteria(String sortCriteria) {
+        for (ProductSort sort : values()) {
+            if (Objects.equals(sort.criteria, sortCriteria)) {
+                return sort;
+            }
+        }
+        return NAME;
+    }
+}
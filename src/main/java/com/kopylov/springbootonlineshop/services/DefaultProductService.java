@@ -1,41 +1,145 @@
 package com.kopylov.springbootonlineshop.services;
 
 import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dto.BulkItemResult;
+import com.kopylov.springbootonlineshop.dto.BulkItemStatus;
 import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductPage;
 import com.kopylov.springbootonlineshop.exceptions.ProductNotFoundException;
+import com.kopylov.springbootonlineshop.exceptions.ProductVersionConflictException;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.model.Money;
 import com.kopylov.springbootonlineshop.model.Product;
-import lombok.AllArgsConstructor;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import com.kopylov.springbootonlineshop.services.writebehind.ProductWriteBehind;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
 
 @Service
-@AllArgsConstructor
 public class DefaultProductService implements ProductService {
 
+    static final int MAX_SEARCH_RESULTS = 1000;
+
     private final ProductsDao productsDao;
+    private final Validator validator;
+    private final ProductWriteBehind writeBehind;
+
+    @Autowired
+    public DefaultProductService(ProductsDao productsDao, Validator validator,
+                                 ObjectProvider<ProductWriteBehind> writeBehind) {
+        this.productsDao = productsDao;
+        this.validator = validator;
+        this.writeBehind = writeBehind.getIfAvailable();
+    }
 
+    public DefaultProductService(ProductsDao productsDao, Validator validator) {
+        this.productsDao = productsDao;
+        this.validator = validator;
+        this.writeBehind = null;
+    }
+
+    /**
+     * Saves the product, or with write-behind enabled only accepts it, in which case the returned product is not
+     * readable until it has been flushed.
+     */
     @Override
     public ProductDto createProduct(ProductDto productDto) {
+        if (writeBehind != null) {
+            return writeBehind.submit(productDto);
+        }
         Product product = Product.builder()
                 .name(productDto.getName())
                 .price(productDto.getPrice())
-                .creationDate(LocalDateTime.now())
+                .currency(Money.currencyOrDefault(productDto.getCurrency()))
+                .creationDate(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
                 .build();
 
-        long productId = productsDao.save(product);
-        productDto.setId(productId);
-        return productDto;
+        return mapToDto(productsDao.save(product), product);
+    }
+
+    @Override
+    public List<BulkItemResult> createProducts(List<ProductDto> productDtos) {
+        BulkItemResult[] results = new BulkItemResult[productDtos.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
+        LocalDateTime creationDate = LocalDateTime.now();
+
+        for (int index = 0; index < productDtos.size(); index++) {
+            ProductDto productDto = productDtos.get(index);
+            List<String> errors = validate(productDto);
+            if (!errors.isEmpty()) {
+                results[index] = new BulkItemResult(index, null, BulkItemStatus.INVALID, errors);
+                continue;
+            }
+            validIndexes.add(index);
+            products.add(Product.builder()
+                    .name(productDto.getName())
+                    .price(productDto.getPrice())
+                    .currency(Money.currencyOrDefault(productDto.getCurrency()))
+                    .creationDate(creationDate)
+                    .build());
+        }
+
+        List<Long> ids = products.isEmpty() ? List.of() : productsDao.saveAll(products);
+        for (int i = 0; i < validIndexes.size(); i++) {
+            int index = validIndexes.get(i);
+            results[index] = new BulkItemResult(index, ids.get(i), BulkItemStatus.CREATED, List.of());
+        }
+        return Arrays.asList(results);
     }
 
     @Override
     public List<Product> findAll(String sortCriteria) {
-        return productsDao.findAll()
-                .stream()
-                .sorted(createComparatorByCriteria(sortCriteria))
-                .collect(Collectors.toList());
+        return productsDao.findAll(ProductSort.fromCriteria(sortCriteria));
+    }
+
+    @Override
+    public ProductPage findPage(String sortCriteria, String cursor, int limit) {
+        ProductSort sort = ProductSort.fromCriteria(sortCriteria);
+        Product after = cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(sort, cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+
+        List<Product> products = productsDao.findPage(sort, after, pageSize + 1);
+        if (products.size() <= pageSize) {
+            return new ProductPage(products, null);
+        }
+        List<Product> page = products.subList(0, pageSize);
+        return new ProductPage(page, ProductCursor.encode(sort, page.get(pageSize - 1)));
+    }
+
+    @Override
+    public ProductPage findPriceRange(long minPrice, long maxPrice, String currency, String cursor, int limit) {
+        Product after = cursor == null || cursor.isEmpty() ? null : ProductCursor.decode(ProductSort.PRICE, cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        if (minPrice > maxPrice) {
+            return new ProductPage(List.of(), null);
+        }
+
+        List<Product> products = productsDao.findPriceRange(Money.currencyOrDefault(currency), minPrice, maxPrice,
+                after, pageSize + 1);
+        if (products.size() <= pageSize) {
+            return new ProductPage(products, null);
+        }
+        List<Product> page = products.subList(0, pageSize);
+        return new ProductPage(page, ProductCursor.encode(ProductSort.PRICE, page.get(pageSize - 1)));
+    }
+
+    @Override
+    public void exportAll(Consumer<Product> consumer) {
+        productsDao.streamAll(consumer);
+    }
+
+    @Override
+    public Optional<CatalogVersion> getCatalogVersion() {
+        return productsDao.findCatalogVersion();
     }
 
     @Override
@@ -50,17 +154,71 @@ public class DefaultProductService implements ProductService {
         return productsDao.findByName(name);
     }
 
+    @Override
+    public ProductPage search(String query, String cursor, int limit) {
+        int offset = cursor == null || cursor.isEmpty() ? 0 : ProductCursor.decodeOffset(cursor);
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        pageSize = Math.min(pageSize, MAX_SEARCH_RESULTS - offset);
+        String normalizedQuery = query == null ? "" : query.strip();
+        if (normalizedQuery.isEmpty() || pageSize <= 0) {
+            return new ProductPage(List.of(), null);
+        }
+
+        List<Product> products = productsDao.search(normalizedQuery, offset, pageSize + 1);
+        if (products.size() <= pageSize) {
+            return new ProductPage(products, null);
+        }
+        return new ProductPage(products.subList(0, pageSize), ProductCursor.encodeOffset(offset + pageSize));
+    }
+
     @Override
     public ProductDto update(long id, ProductDto productDto) {
-        Product product = productsDao.findById(id).orElseThrow(() ->
+        Product product = productsDao.update(mapToEntity(id, productDto)).orElseThrow(() ->
                 new ProductNotFoundException("Product with id: " + id + " not found."));
+        return mapToDto(id, product);
+    }
+
+    @Override
+    public ProductDto update(long id, ProductDto productDto, long expectedVersion) {
+        Optional<Product> product = productsDao.update(mapToEntity(id, productDto), expectedVersion);
+        if (product.isPresent()) {
+            return mapToDto(id, product.get());
+        }
+        if (productsDao.findById(id).isPresent()) {
+            throw new ProductVersionConflictException("Product with id: " + id + " is not at version: " + expectedVersion);
+        }
+        throw new ProductNotFoundException("Product with id: " + id + " not found.");
+    }
 
-        product.setName(productDto.getName());
-        product.setPrice(productDto.getPrice());
+    @Override
+    public List<BulkItemResult> updateProducts(List<ProductDto> productDtos) {
+        BulkItemResult[] results = new BulkItemResult[productDtos.size()];
+        List<Integer> validIndexes = new ArrayList<>();
+        List<Product> products = new ArrayList<>();
 
-        productsDao.update(product);
+        for (int index = 0; index < productDtos.size(); index++) {
+            ProductDto productDto = productDtos.get(index);
+            List<String> errors = validate(productDto);
+            if (!errors.isEmpty()) {
+                results[index] = new BulkItemResult(index, productDto.getId(), BulkItemStatus.INVALID, errors);
+                continue;
+            }
+            validIndexes.add(index);
+            products.add(Product.builder()
+                    .id(productDto.getId())
+                    .name(productDto.getName())
+                    .price(productDto.getPrice())
+                    .currency(productDto.getCurrency())
+                    .build());
+        }
 
-        return mapToDto(id, product);
+        int[] updateCounts = products.isEmpty() ? new int[0] : productsDao.updateAll(products);
+        for (int i = 0; i < validIndexes.size(); i++) {
+            int index = validIndexes.get(i);
+            BulkItemStatus status = updateCounts[i] == 0 ? BulkItemStatus.NOT_FOUND : BulkItemStatus.UPDATED;
+            results[index] = new BulkItemResult(index, products.get(i).getId(), status, List.of());
+        }
+        return Arrays.asList(results);
     }
 
     @Override
@@ -68,31 +226,48 @@ public class DefaultProductService implements ProductService {
         productsDao.delete(id);
     }
 
-    private Comparator<Product> createComparatorByCriteria(String sortCriteria) {
-        if (Objects.equals("name", sortCriteria)) {
-            return Comparator.comparing(Product::getName);
-        } else if (Objects.equals("price", sortCriteria)) {
-            return Comparator.comparing(Product::getPrice);
-        } else if (Objects.equals("date", sortCriteria)) {
-            return Comparator.comparing(Product::getCreationDate);
-        } else {
-            return Comparator.comparing(Product::getName);
+    @Override
+    public List<BulkItemResult> deleteProducts(List<Long> ids) {
+        int[] deleteCounts = ids.isEmpty() ? new int[0] : productsDao.deleteAll(ids);
+        List<BulkItemResult> results = new ArrayList<>(ids.size());
+        for (int index = 0; index < ids.size(); index++) {
+            BulkItemStatus status = deleteCounts[index] == 0 ? BulkItemStatus.NOT_FOUND : BulkItemStatus.DELETED;
+            results.add(new BulkItemResult(index, ids.get(index), status, List.of()));
+        }
+        return results;
+    }
+
+    private List<String> validate(ProductDto productDto) {
+        if (productDto == null) {
+            return List.of("Product should not be null");
         }
+        return validator.validate(productDto).stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .toList();
     }
 
-    private ProductDto mapToDto(long id, Product product) {
+    ProductDto mapToDto(long id, Product product) {
         return ProductDto.builder()
                 .id(id)
                 .name(product.getName())
                 .price(product.getPrice())
+                .currency(product.getCurrency())
                 .creationDate(product.getCreationDate())
+                .version(product.getVersion())
                 .build();
     }
 
-    private Product mapToEntity(ProductDto productDto) {
+    /**
+     * Maps an update. A missing currency stays missing, so that the stored one is kept rather than reset to the
+     * default without converting the price.
+     */
+    private Product mapToEntity(long id, ProductDto productDto) {
         return Product.builder()
+                .id(id)
                 .name(productDto.getName())
                 .price(productDto.getPrice())
+                .currency(productDto.getCurrency())
                 .creationDate(productDto.getCreationDate())
                 .build();
     }
@@ -0,0 +1,89 @@
+package com.kopylov.springbootonlineshop.services;
+
+import com.kopylov.springbootonlineshop.exceptions.InvalidCursorException;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+
+/**
+ * Opaque paging cursors. Listings use a keyset cursor: the sort criteria, the id and the sort column value of
+ * the last row of a page. Ranked search results have no stable key, so their cursor is the next offset.
+ */
+final class ProductCursor {
+
+    private static final String SEPARATOR = ":";
+
+    private static final String SEARCH_PREFIX = "search";
+
+    private ProductCursor() {
+    }
+
+    static String encode(ProductSort sort, Product last) {
+        return encode(sort.getCriteria() + SEPARATOR + last.getId() + SEPARATOR + sortValue(sort, last));
+    }
+
+    static Product decode(ProductSort sort, String cursor) {
+        String[] parts = decode(cursor).split(SEPARATOR, 3);
+        if (parts.length != 3) {
+            throw new InvalidCursorException("Cursor: " + cursor + " is malformed.");
+        }
+        if (!sort.getCriteria().equals(parts[0])) {
+            throw new InvalidCursorException("Cursor: " + cursor + " does not match sort criteria: " + sort.getCriteria());
+        }
+
+        try {
+            Product.ProductBuilder key = Product.builder().id(Long.parseLong(parts[1]));
+            switch (sort) {
+                case PRICE -> key.price(Long.parseLong(parts[2]));
+                case DATE -> key.creationDate(LocalDateTime.parse(parts[2]));
+                default -> key.name(parts[2]);
+            }
+            return key.build();
+        } catch (RuntimeException e) {
+            throw new InvalidCursorException("Cursor: " + cursor + " is malformed.");
+        }
+    }
+
+    static String encodeOffset(int offset) {
+        return encode(SEARCH_PREFIX + SEPARATOR + offset);
+    }
+
+    static int decodeOffset(String cursor) {
+        String[] parts = decode(cursor).split(SEPARATOR, 2);
+        if (parts.length != 2 || !SEARCH_PREFIX.equals(parts[0])) {
+            throw new InvalidCursorException("Cursor: " + cursor + " is not a search cursor.");
+        }
+        try {
+            int offset = Integer.parseInt(parts[1]);
+            if (offset < 0) {
+                throw new InvalidCursorException("Cursor: " + cursor + " is malformed.");
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new InvalidCursorException("Cursor: " + cursor + " is malformed.");
+        }
+    }
+
+    private static String encode(String raw) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String cursor) {
+        try {
+            return new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+        } catch (IllegalArgumentException e) {
+            throw new InvalidCursorException("Cursor: " + cursor + " is malformed.");
+        }
+    }
+
+    private static String sortValue(ProductSort sort, Product product) {
+        return switch (sort) {
+            case PRICE -> Long.toString(product.getPrice());
+            case DATE -> product.getCreationDate().toString();
+            default -> product.getName();
+        };
+    }
+}
@@ -1,21 +1,49 @@
 package com.kopylov.springbootonlineshop.services;
 
+import com.kopylov.springbootonlineshop.dto.BulkItemResult;
 import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductPage;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
 import com.kopylov.springbootonlineshop.model.Product;
 
 import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ProductService {
 
+    /**
+     * Largest page a listing or search returns; limits outside 1..MAX_PAGE_SIZE are clamped into that range.
+     */
+    int MAX_PAGE_SIZE = 1000;
+
     ProductDto createProduct(ProductDto productDto);
 
+    List<BulkItemResult> createProducts(List<ProductDto> productDtos);
+
     List<Product> findAll(String sortCriteria);
 
+    ProductPage findPage(String sortCriteria, String cursor, int limit);
+
+    ProductPage findPriceRange(long minPrice, long maxPrice, String currency, String cursor, int limit);
+
+    void exportAll(Consumer<Product> consumer);
+
+    Optional<CatalogVersion> getCatalogVersion();
+
     ProductDto getById(long id);
 
     List<Product> getByName(String name);
 
+    ProductPage search(String query, String cursor, int limit);
+
     ProductDto update(long id, ProductDto productDto);
 
+    ProductDto update(long id, ProductDto productDto, long expectedVersion);
+
+    List<BulkItemResult> updateProducts(List<ProductDto> productDtos);
+
     void delete(long id);
+
+    List<BulkItemResult> deleteProducts(List<Long> ids);
 }
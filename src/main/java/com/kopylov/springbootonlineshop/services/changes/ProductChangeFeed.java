@@ -0,0 +1,191 @@
+package com.kopylov.springbootonlineshop.services.changes;
+
+import com.kopylov.springbootonlineshop.dao.ProductChangesDao;
+import com.kopylov.springbootonlineshop.exceptions.TooManySubscribersException;
+import com.kopylov.springbootonlineshop.model.ProductChange;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Follows the {@code product_changes} outbox for any number of subscribers. One poller reads the latest offset every
+ * {@code pollInterval}, a single index probe however many subscribers there are, and only subscribers behind it
+ * read their next changes, in pages of {@code pageSize}, on a delivery thread of their own so a slow client holds
+ * up nobody else. Idle subscriptions get a heartbeat every {@code heartbeat}.
+ * <p>
+ * Offsets are outbox ids, which follow commit order. To follow the catalog without missing a change, subscribe
+ * first, then load the catalog and skip changes whose catalog version is not above the listing's ETag.
+ */
+@Slf4j
+public class ProductChangeFeed {
+
+    private static final Duration PRUNE_INTERVAL = Duration.ofHours(1);
+
+    private final ProductChangesDao productChangesDao;
+    private final int pageSize;
+    private final Duration pollInterval;
+    private final Duration heartbeat;
+    private final Duration retention;
+    private final int maxSubscribers;
+
+    private final Set<Subscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Semaphore subscriberSlots;
+    private final ScheduledExecutorService poller;
+    private final ExecutorService delivery;
+    private long nextPrune;
+
+    public ProductChangeFeed(ProductChangesDao productChangesDao, int pageSize, Duration pollInterval,
+                             Duration heartbeat, Duration retention, int maxSubscribers) {
+        this.productChangesDao = productChangesDao;
+        this.pageSize = pageSize;
+        this.pollInterval = pollInterval;
+        this.heartbeat = heartbeat;
+        this.retention = retention;
+        this.maxSubscribers = maxSubscribers;
+        this.subscriberSlots = new Semaphore(maxSubscribers);
+        AtomicInteger deliveryThreads = new AtomicInteger();
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable ->
+                daemon(runnable, "product-changes-poller"));
+        this.delivery = Executors.newCachedThreadPool(runnable ->
+                daemon(runnable, "product-changes-delivery-" + deliveryThreads.incrementAndGet()));
+    }
+
+    public void start() {
+        nextPrune = System.nanoTime();
+        poller.scheduleWithFixedDelay(this::poll, 0, pollInterval.toMillis(), TimeUnit.MILLISECONDS);
+    }
+
+    public void stop() {
+        poller.shutdownNow();
+        delivery.shutdownNow();
+        subscriptions.forEach(this::unsubscribe);
+    }
+
+    /**
+     * Subscribes {@code listener} to changes after {@code after}, or to changes from now on if it is empty. An
+     * offset that was pruned or lies beyond the latest change is answered with {@link ProductChangeListener#onResync}.
+     * The subscriber's slot is taken before anything else and given back by {@link #unsubscribe}.
+     */
+    public Subscription subscribe(OptionalLong after, ProductChangeListener listener) throws IOException {
+        if (!subscriberSlots.tryAcquire()) {
+            throw new TooManySubscribersException("The change feed already has " + maxSubscribers + " subscribers");
+        }
+        try {
+            long latest = productChangesDao.findLatestOffset();
+            Subscription subscription = new Subscription(latest, listener);
+            if (after.isPresent()) {
+                long offset = after.getAsLong();
+                if (offset > latest || offset < productChangesDao.findEarliestOffset() - 1) {
+                    listener.onResync(latest);
+                } else {
+                    subscription.offset = offset;
+                }
+            }
+            subscriptions.add(subscription);
+            return subscription;
+        } catch (IOException | RuntimeException e) {
+            subscriberSlots.release();
+            throw e;
+        }
+    }
+
+    public void unsubscribe(Subscription subscription) {
+        if (subscriptions.remove(subscription)) {
+            subscriberSlots.release();
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscriptions.size();
+    }
+
+    void poll() {
+        try {
+            long latest = subscriptions.isEmpty() ? 0 : productChangesDao.findLatestOffset();
+            long now = System.nanoTime();
+            for (Subscription subscription : subscriptions) {
+                if (subscription.offset < latest || now - subscription.lastSent >= heartbeat.toNanos()) {
+                    subscription.schedule();
+                }
+            }
+            if (now - nextPrune >= 0) {
+                nextPrune = now + PRUNE_INTERVAL.toNanos();
+                int pruned = productChangesDao.deleteBefore(Instant.now().minus(retention));
+                if (pruned > 0) {
+                    log.info("Pruned {} product changes older than {}", pruned, retention);
+                }
+            }
+        } catch (RuntimeException e) {
+            log.warn("Polling product changes failed: {}", e.getMessage());
+        }
+    }
+
+    private static Thread daemon(Runnable runnable, String name) {
+        Thread thread = new Thread(runnable, name);
+        thread.setDaemon(true);
+        return thread;
+    }
+
+    public final class Subscription {
+
+        private final ProductChangeListener listener;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile long offset;
+        private volatile long lastSent = System.nanoTime();
+
+        private Subscription(long offset, ProductChangeListener listener) {
+            this.offset = offset;
+            this.listener = listener;
+        }
+
+        public long getOffset() {
+            return offset;
+        }
+
+        private void schedule() {
+            if (scheduled.compareAndSet(false, true)) {
+                delivery.execute(this::deliver);
+            }
+        }
+
+        private void deliver() {
+            try {
+                boolean sent = false;
+                List<ProductChange> changes;
+                do {
+                    changes = productChangesDao.findAfter(offset, pageSize);
+                    if (!changes.isEmpty()) {
+                        listener.onChanges(changes);
+                        offset = changes.get(changes.size() - 1).getOffset();
+                        sent = true;
+                    }
+                } while (changes.size() == pageSize && subscriptions.contains(this));
+                if (!sent) {
+                    listener.onHeartbeat();
+                }
+                lastSent = System.nanoTime();
+            } catch (DataAccessException e) {
+                log.warn("Reading product changes after {} failed: {}", offset, e.getMessage());
+            } catch (Exception e) {
+                log.debug("Ending product change subscription: {}", e.getMessage());
+                unsubscribe(this);
+            } finally {
+                scheduled.set(false);
+            }
+        }
+    }
+}
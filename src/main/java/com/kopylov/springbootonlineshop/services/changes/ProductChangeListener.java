@@ -0,0 +1,23 @@
+package com.kopylov.springbootonlineshop.services.changes;
+
+import com.kopylov.springbootonlineshop.model.ProductChange;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Receives a subscription's changes from {@link ProductChangeFeed}. Calls for one subscription never overlap; an
+ * exception ends the subscription.
+ */
+public interface ProductChangeListener {
+
+    void onChanges(List<ProductChange> changes) throws IOException;
+
+    /**
+     * The requested offset is no longer, or not yet, recorded. The subscriber has to reload the catalog; the
+     * subscription continues after {@code offset}.
+     */
+    void onResync(long offset) throws IOException;
+
+    void onHeartbeat() throws IOException;
+}
@@ -0,0 +1,325 @@
+package com.kopylov.springbootonlineshop.services.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductWriteState;
+import com.kopylov.springbootonlineshop.dto.ProductWriteStatus;
+import com.kopylov.springbootonlineshop.exceptions.WriteBehindRejectedException;
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Write-behind pipeline for product creation. {@link #submit} gives the product an id from a block reserved in
+ * advance from the products sequence, records it in a {@link WriteBehindJournal} and queues it, so the caller can
+ * answer before the row exists. A single flusher thread drains the queue into multi-row inserts of up to
+ * {@code batchSize} products.
+ * <p>
+ * The queue is bounded by permits that are only returned once a product is persisted or given up on, so a slow or
+ * unavailable database pushes back on callers: {@link #submit} waits up to {@code offerTimeout} for a permit and
+ * then throws {@link WriteBehindRejectedException}. Connection and other transient failures retry the batch with
+ * exponential backoff for as long as it takes; any other failure splits the batch so that only the offending
+ * products end up {@link ProductWriteState#FAILED}. Products still queued when the application stops stay in the
+ * journal and are flushed on the next start.
+ */
+@Slf4j
+public class ProductWriteBehind implements MeterBinder {
+
+    private static final Duration INITIAL_RETRY_DELAY = Duration.ofMillis(100);
+
+    private static final Duration FINISHED_STATUS_TTL = Duration.ofHours(1);
+
+    private static final long FINISHED_STATUS_MAXIMUM_SIZE = 100_000;
+
+    private final ProductsDao productsDao;
+    private final WriteBehindJournal journal;
+    private final int batchSize;
+    private final int idBlockSize;
+    private final Duration offerTimeout;
+    private final Duration maxRetryDelay;
+    private final Duration shutdownTimeout;
+
+    private final BlockingQueue<Product> queue;
+    private final Semaphore permits;
+    private final AtomicInteger unflushed = new AtomicInteger();
+    private final Map<Long, ProductWriteStatus> pending = new ConcurrentHashMap<>();
+    private final Cache<Long, ProductWriteStatus> finished;
+    private final Deque<Long> reservedIds = new ArrayDeque<>();
+    private final AtomicLong persistedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong retryCount = new AtomicLong();
+    private final Thread flusher;
+    private volatile boolean running;
+
+    public ProductWriteBehind(ProductsDao productsDao, Path journalPath, ObjectMapper objectMapper, boolean fsync,
+                              int capacity, int batchSize, int idBlockSize, Duration offerTimeout,
+                              Duration maxRetryDelay, Duration shutdownTimeout) {
+        this.productsDao = productsDao;
+        this.journal = new WriteBehindJournal(journalPath, objectMapper, fsync);
+        this.batchSize = batchSize;
+        this.idBlockSize = idBlockSize;
+        this.offerTimeout = offerTimeout;
+        this.maxRetryDelay = maxRetryDelay;
+        this.shutdownTimeout = shutdownTimeout;
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.permits = new Semaphore(capacity);
+        this.finished = Caffeine.newBuilder()
+                .maximumSize(FINISHED_STATUS_MAXIMUM_SIZE)
+                .expireAfterWrite(FINISHED_STATUS_TTL)
+                .build();
+        this.flusher = new Thread(this::flushLoop, "product-write-behind");
+    }
+
+    /**
+     * Starts the flusher and queues whatever the previous run left in the journal ahead of new submissions.
+     */
+    public void start() throws IOException {
+        List<Product> recovered = journal.recover();
+        running = true;
+        flusher.start();
+        if (!recovered.isEmpty()) {
+            log.info("Flushing {} products accepted before the last shutdown", recovered.size());
+        }
+        for (Product product : recovered) {
+            permits.acquireUninterruptibly();
+            unflushed.incrementAndGet();
+            pending.put(product.getId(), status(product.getId(), ProductWriteState.PENDING, 0, null));
+            queue.add(product);
+        }
+    }
+
+    /**
+     * Stops accepting products and gives the flusher {@code shutdownTimeout} to empty the queue. Whatever is left
+     * after that is still in the journal.
+     */
+    public void stop() throws IOException {
+        running = false;
+        try {
+            flusher.join(shutdownTimeout.toMillis());
+            if (flusher.isAlive()) {
+                log.warn("{} products were not flushed before shutdown and stay in the journal", unflushed.get());
+                flusher.interrupt();
+                flusher.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            journal.close();
+        }
+    }
+
+    /**
+     * Accepts a validated product for creation and returns it as it will be stored, with its id and creation date.
+     * The product is durable once this returns but is not visible to reads until it has been flushed.
+     */
+    public ProductDto submit(ProductDto productDto) {
+        if (!running) {
+            throw new WriteBehindRejectedException("Write-behind is not accepting products");
+        }
+        try {
+            if (!permits.tryAcquire(offerTimeout.toNanos(), TimeUnit.NANOSECONDS)) {
+                throw new WriteBehindRejectedException("Write-behind queue is full");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new WriteBehindRejectedException("Interrupted while waiting for the write-behind queue", e);
+        }
+
+        Product product;
+        try {
+            product = Product.builder()
+                    .id(nextId())
+                    .name(productDto.getName())
+                    .price(productDto.getPrice())
+                    .currency(Money.currencyOrDefault(productDto.getCurrency()))
+                    .creationDate(LocalDateTime.now().truncatedTo(ChronoUnit.MICROS))
+                    .build();
+        } catch (DataAccessException e) {
+            permits.release();
+            throw new WriteBehindRejectedException("Could not reserve a product id", e);
+        }
+
+        unflushed.incrementAndGet();
+        pending.put(product.getId(), status(product.getId(), ProductWriteState.PENDING, 0, null));
+        try {
+            journal.accepted(product);
+        } catch (IOException e) {
+            pending.remove(product.getId());
+            unflushed.decrementAndGet();
+            permits.release();
+            throw new WriteBehindRejectedException("Could not journal the product", e);
+        }
+        queue.add(product);
+
+        return ProductDto.builder()
+                .id(product.getId())
+                .name(product.getName())
+                .price(product.getPrice())
+                .currency(product.getCurrency())
+                .creationDate(product.getCreationDate())
+                .version(product.getVersion())
+                .build();
+    }
+
+    /**
+     * Reports whether the product with {@code id} is still queued, was given up on, or is in the database.
+     */
+    public Optional<ProductWriteStatus> getStatus(long id) {
+        ProductWriteStatus status = pending.get(id);
+        if (status == null) {
+            status = finished.getIfPresent(id);
+        }
+        if (status != null) {
+            return Optional.of(status);
+        }
+        return productsDao.findById(id).map(product -> status(id, ProductWriteState.PERSISTED, 0, null));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("products.write-behind.pending", unflushed, AtomicInteger::get)
+                .description("Products accepted but not yet flushed or failed")
+                .register(registry);
+        FunctionCounter.builder("products.write-behind.flushed", persistedCount, AtomicLong::get)
+                .tag("result", "persisted")
+                .register(registry);
+        FunctionCounter.builder("products.write-behind.flushed", failedCount, AtomicLong::get)
+                .tag("result", "failed")
+                .register(registry);
+        FunctionCounter.builder("products.write-behind.retries", retryCount, AtomicLong::get)
+                .register(registry);
+    }
+
+    private synchronized long nextId() {
+        if (reservedIds.isEmpty()) {
+            reservedIds.addAll(productsDao.reserveIds(idBlockSize));
+        }
+        return reservedIds.removeFirst();
+    }
+
+    private void flushLoop() {
+        List<Product> batch = new ArrayList<>(batchSize);
+        try {
+            while (running || !queue.isEmpty()) {
+                Product first = queue.poll(100, TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    truncateJournalIfIdle();
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                flush(batch, 1);
+                batch.clear();
+            }
+            truncateJournalIfIdle();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<Product> batch, int attempt) throws InterruptedException {
+        while (true) {
+            try {
+                productsDao.insertAll(batch);
+                complete(batch, ProductWriteState.PERSISTED, attempt, null);
+                return;
+            } catch (RuntimeException e) {
+                String error = e instanceof DataAccessException dataAccessException
+                        ? dataAccessException.getMostSpecificCause().getMessage() : e.getMessage();
+                if (!isTransient(e)) {
+                    if (batch.size() > 1) {
+                        for (Product product : batch) {
+                            flush(List.of(product), attempt + 1);
+                        }
+                    } else {
+                        log.warn("Giving up on product {}: {}", batch.get(0).getId(), error);
+                        complete(batch, ProductWriteState.FAILED, attempt, error);
+                    }
+                    return;
+                }
+                retryCount.incrementAndGet();
+                for (Product product : batch) {
+                    pending.put(product.getId(), status(product.getId(), ProductWriteState.PENDING, attempt, error));
+                }
+                Duration delay = retryDelay(attempt);
+                log.warn("Flushing {} products failed on attempt {}, retrying in {} ms: {}", batch.size(), attempt,
+                        delay.toMillis(), error);
+                Thread.sleep(delay.toMillis());
+                attempt++;
+            }
+        }
+    }
+
+    private void complete(List<Product> batch, ProductWriteState state, int attempts, String error) {
+        List<Long> ids = batch.stream().map(Product::getId).toList();
+        try {
+            if (state == ProductWriteState.PERSISTED) {
+                journal.flushed(ids);
+            } else {
+                journal.failed(ids, error);
+            }
+        } catch (IOException e) {
+            log.error("Could not journal {} products as {}", ids.size(), state, e);
+        }
+        for (Long id : ids) {
+            finished.put(id, status(id, state, attempts, error));
+            pending.remove(id);
+        }
+        (state == ProductWriteState.PERSISTED ? persistedCount : failedCount).addAndGet(ids.size());
+        unflushed.addAndGet(-ids.size());
+        permits.release(ids.size());
+    }
+
+    private void truncateJournalIfIdle() {
+        try {
+            journal.truncateIf(() -> unflushed.get() == 0);
+        } catch (IOException e) {
+            log.error("Could not truncate the write-behind journal", e);
+        }
+    }
+
+    private Duration retryDelay(int attempt) {
+        Duration delay = INITIAL_RETRY_DELAY.multipliedBy(1L << Math.min(attempt - 1, 20));
+        return delay.compareTo(maxRetryDelay) > 0 ? maxRetryDelay : delay;
+    }
+
+    private static boolean isTransient(RuntimeException e) {
+        return e instanceof TransientDataAccessException
+                || e instanceof RecoverableDataAccessException
+                || e instanceof DataAccessResourceFailureException;
+    }
+
+    private static ProductWriteStatus status(long id, ProductWriteState state, int attempts, String error) {
+        return new ProductWriteStatus(id, state, attempts, error);
+    }
+}
@@ -0,0 +1,203 @@
+package com.kopylov.springbootonlineshop.services.writebehind;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Append-only file of write-behind events, one JSON object per line: an {@code accepted} entry for every product
+ * before it is acknowledged, and {@code flushed} or {@code failed} entries once its batch is done with. Products
+ * accepted but neither flushed nor failed are handed back by {@link #recover()} after a restart.
+ * <p>
+ * With {@code fsync} on, {@link #accepted} returns only once the entry is on disk. Concurrent callers share a
+ * force: whoever gets the sync lock forces everything written so far, and callers whose entries that covered
+ * return without forcing again. Completion entries are not forced; losing one only means the batch is inserted
+ * again on recovery, which {@code ON CONFLICT DO NOTHING} turns into a no-op.
+ */
+class WriteBehindJournal implements Closeable {
+
+    private static final String ACCEPTED = "accepted";
+    private static final String FLUSHED = "flushed";
+    private static final String FAILED = "failed";
+
+    private final Path path;
+    private final ObjectMapper objectMapper;
+    private final boolean fsync;
+    private final Object syncLock = new Object();
+    private FileChannel channel;
+    private volatile long synced;
+
+    WriteBehindJournal(Path path, ObjectMapper objectMapper, boolean fsync) {
+        this.path = path;
+        this.objectMapper = objectMapper;
+        this.fsync = fsync;
+    }
+
+    /**
+     * Reads the journal left by the previous run, rewrites it to hold only the products that still need flushing,
+     * opens it for appending and returns those products in the order they were accepted.
+     */
+    synchronized List<Product> recover() throws IOException {
+        Map<Long, Product> unflushed = new LinkedHashMap<>();
+        if (Files.exists(path)) {
+            try (BufferedReader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.isBlank()) {
+                        continue;
+                    }
+                    Entry entry;
+                    try {
+                        entry = objectMapper.readValue(line, Entry.class);
+                    } catch (IOException e) {
+                        // A torn last line from a crash mid-append; its request was never acknowledged.
+                        break;
+                    }
+                    switch (entry.getType()) {
+                        case ACCEPTED -> unflushed.put(entry.getId(), entry.toProduct());
+                        case FLUSHED, FAILED -> entry.getIds().forEach(unflushed::remove);
+                        default -> throw new IOException("Unknown write-behind journal entry " + entry.getType());
+                    }
+                }
+            }
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path compacted = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (FileChannel out = FileChannel.open(compacted, StandardOpenOption.WRITE)) {
+            for (Product product : unflushed.values()) {
+                write(out, acceptedEntry(product));
+            }
+            out.force(true);
+        }
+        Files.move(compacted, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        channel = FileChannel.open(path, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        synced = channel.size();
+        return new ArrayList<>(unflushed.values());
+    }
+
+    void accepted(Product product) throws IOException {
+        long position = append(acceptedEntry(product));
+        if (fsync) {
+            sync(position);
+        }
+    }
+
+    void flushed(List<Long> ids) throws IOException {
+        append(new Entry(FLUSHED, null, null, null, null, null, ids, null));
+    }
+
+    void failed(List<Long> ids, String error) throws IOException {
+        append(new Entry(FAILED, null, null, null, null, null, ids, error));
+    }
+
+    /**
+     * Empties the journal if {@code idle} confirms, under the append lock, that no accepted product is waiting.
+     */
+    synchronized void truncateIf(BooleanSupplier idle) throws IOException {
+        if (channel.size() > 0 && idle.getAsBoolean()) {
+            channel.truncate(0);
+            synced = 0;
+        }
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (channel != null) {
+            channel.force(true);
+            channel.close();
+        }
+    }
+
+    private synchronized long append(Entry entry) throws IOException {
+        write(channel, entry);
+        return channel.position();
+    }
+
+    private void write(FileChannel out, Entry entry) throws IOException {
+        byte[] json = objectMapper.writeValueAsBytes(entry);
+        ByteBuffer buffer = ByteBuffer.allocate(json.length + 1).put(json).put((byte) '\n').flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+    }
+
+    private void sync(long position) throws IOException {
+        if (synced >= position) {
+            return;
+        }
+        synchronized (syncLock) {
+            if (synced >= position) {
+                return;
+            }
+            long written;
+            synchronized (this) {
+                written = channel.position();
+            }
+            channel.force(false);
+            synced = written;
+        }
+    }
+
+    private static Entry acceptedEntry(Product product) {
+        return new Entry(ACCEPTED, product.getId(), product.getName(), product.getPrice(), product.getCurrency(),
+                product.getCreationDate(), null, null);
+    }
+
+    @Getter
+    @AllArgsConstructor
+    @NoArgsConstructor
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    static class Entry {
+
+        private String type;
+
+        private Long id;
+
+        private String name;
+
+        private Number price;
+
+        private String currency;
+
+        private LocalDateTime creationDate;
+
+        private List<Long> ids;
+
+        private String error;
+
+        /**
+         * Entries journaled before prices were kept in minor units have no currency and a price in dollars.
+         */
+        Product toProduct() {
+            long minorUnits = currency != null ? price.longValue() : BigDecimal.valueOf(price.doubleValue())
+                    .movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            return new Product(id, name, minorUnits, Money.currencyOrDefault(currency), creationDate, 0);
+        }
+    }
+}
@@ -0,0 +1,5 @@
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX products_lower_name_idx ON products ((lower(name) COLLATE "C"), id);
+
+CREATE INDEX products_lower_name_trgm_idx ON products USING gin (lower(name) gin_trgm_ops);
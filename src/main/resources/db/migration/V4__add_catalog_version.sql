@@ -0,0 +1,40 @@
+CREATE TABLE catalog_version
+(
+    id            SMALLINT PRIMARY KEY DEFAULT 1 CHECK (id = 1),
+    version       BIGINT      NOT NULL DEFAULT 0,
+    last_modified TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+INSERT INTO catalog_version DEFAULT VALUES;
+
+CREATE FUNCTION bump_catalog_version() RETURNS TRIGGER AS
+$$
+BEGIN
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_products) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE catalog_version SET version = version + 1, last_modified = now() WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+CREATE TRIGGER products_insert_catalog_version
+    AFTER INSERT ON products
+    REFERENCING NEW TABLE AS changed_products
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_version();
+
+CREATE TRIGGER products_update_catalog_version
+    AFTER UPDATE ON products
+    REFERENCING NEW TABLE AS changed_products
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_version();
+
+CREATE TRIGGER products_delete_catalog_version
+    AFTER DELETE ON products
+    REFERENCING OLD TABLE AS changed_products
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_version();
+
+CREATE TRIGGER products_truncate_catalog_version
+    AFTER TRUNCATE ON products
+    FOR EACH STATEMENT EXECUTE FUNCTION bump_catalog_version();
@@ -0,0 +1,39 @@
+CREATE TABLE product_changes
+(
+    id              BIGSERIAL PRIMARY KEY,
+    catalog_version BIGINT      NOT NULL,
+    type            VARCHAR(8)  NOT NULL,
+    product_id      BIGINT,
+    name            VARCHAR(20),
+    price           NUMERIC(10, 2),
+    creation_date   TIMESTAMP,
+    version         BIGINT,
+    changed_at      TIMESTAMPTZ NOT NULL DEFAULT now()
+);
+
+CREATE INDEX product_changes_changed_at_idx ON product_changes (changed_at);
+
+-- Records every product change in product_changes in the same statement that bumps the catalog version. The ids
+-- are drawn while the transaction holds the catalog_version row lock, so they are handed out in commit order and
+-- a reader following id never skips a change that commits late.
+CREATE OR REPLACE FUNCTION bump_catalog_version() RETURNS TRIGGER AS
+$$
+DECLARE
+    new_version BIGINT;
+BEGIN
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_products) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE catalog_version SET version = version + 1, last_modified = now() WHERE id = 1
+        RETURNING version INTO new_version;
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO product_changes (catalog_version, type) VALUES (new_version, TG_OP);
+    ELSE
+        INSERT INTO product_changes (catalog_version, type, product_id, name, price, creation_date, version)
+        SELECT new_version, TG_OP, id, name, price, creation_date, version FROM changed_products ORDER BY id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
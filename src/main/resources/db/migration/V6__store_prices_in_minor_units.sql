@@ -0,0 +1,38 @@
+-- Prices become an exact count of minor units (cents) of an explicit currency. Every existing price is a
+-- NUMERIC(10,2) amount in US dollars.
+ALTER TABLE products
+    ALTER COLUMN price TYPE BIGINT USING round(price * 100)::BIGINT,
+    ADD COLUMN currency VARCHAR(3) NOT NULL DEFAULT 'USD';
+
+COMMENT ON COLUMN products.price IS 'Price in minor units of currency';
+
+-- Serves price range queries within a currency in (price, id) order, which is also their keyset paging order.
+CREATE INDEX products_currency_price_idx ON products (currency, price, id);
+
+ALTER TABLE product_changes
+    ALTER COLUMN price TYPE BIGINT USING round(price * 100)::BIGINT,
+    ADD COLUMN currency VARCHAR(3);
+
+UPDATE product_changes SET currency = 'USD' WHERE product_id IS NOT NULL;
+
+CREATE OR REPLACE FUNCTION bump_catalog_version() RETURNS TRIGGER AS
+$$
+DECLARE
+    new_version BIGINT;
+BEGIN
+    IF TG_OP <> 'TRUNCATE' THEN
+        IF NOT EXISTS (SELECT 1 FROM changed_products) THEN
+            RETURN NULL;
+        END IF;
+    END IF;
+    UPDATE catalog_version SET version = version + 1, last_modified = now() WHERE id = 1
+        RETURNING version INTO new_version;
+    IF TG_OP = 'TRUNCATE' THEN
+        INSERT INTO product_changes (catalog_version, type) VALUES (new_version, TG_OP);
+    ELSE
+        INSERT INTO product_changes (catalog_version, type, product_id, name, price, currency, creation_date, version)
+        SELECT new_version, TG_OP, id, name, price, currency, creation_date, version FROM changed_products ORDER BY id;
+    END IF;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
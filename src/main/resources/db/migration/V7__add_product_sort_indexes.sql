@@ -0,0 +1,8 @@
+-- Serve the sorted listings and keyset pages, ORDER BY <column>, id after (<column>, id) > (?, ?), from an index
+-- instead of sorting the whole table, and exact name lookups without a scan. Built concurrently so that writes to
+-- products carry on while an existing catalog is indexed.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS products_name_id_idx ON products (name, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS products_price_id_idx ON products (price, id);
+
+CREATE INDEX CONCURRENTLY IF NOT EXISTS products_creation_date_id_idx ON products (creation_date, id);
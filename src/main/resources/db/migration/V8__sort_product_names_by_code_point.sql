@@ -0,0 +1,6 @@
+-- Sort names by code point, COLLATE "C", instead of by the database's collation, which differs between
+-- installations and which the in-memory snapshot cannot reproduce. The name index follows, so the sorted listings,
+-- their keyset pages and exact name lookups keep being served from it.
+CREATE INDEX CONCURRENTLY IF NOT EXISTS products_name_c_id_idx ON products ((name COLLATE "C"), id);
+
+DROP INDEX CONCURRENTLY IF EXISTS products_name_id_idx;
@@ -0,0 +1,45 @@
+package com.kopylov.springbootonlineshop;
+
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductChange;
+import org.junit.jupiter.api.Test;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.TypeReference;
+import org.springframework.aot.hint.predicate.RuntimeHintsPredicates;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpringBootOnlineShopRuntimeHintsTest {
+
+    private final RuntimeHints hints = new RuntimeHints();
+
+    SpringBootOnlineShopRuntimeHintsTest() {
+        new SpringBootOnlineShopRuntimeHints().registerHints(hints, getClass().getClassLoader());
+    }
+
+    @Test
+    void testRuntimeHints_TemplateModelsAndJsonTypes_Reflective() throws Exception {
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(Product.class.getMethod("getCurrency")).test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(ProductDto.class.getMethod("setPrice", long.class))
+                .test(hints));
+        assertTrue(RuntimeHintsPredicates.reflection().onMethod(ProductChange.class.getMethod("getProduct"))
+                .test(hints));
+    }
+
+    @Test
+    void testRuntimeHints_WriteBehindJournalEntry_FieldsAndConstructor() throws Exception {
+        Class<?> entry = Class.forName(SpringBootOnlineShopRuntimeHints.WRITE_BEHIND_JOURNAL_ENTRY);
+
+        assertTrue(RuntimeHintsPredicates.reflection().onType(TypeReference.of(entry))
+                .withMemberCategories(MemberCategory.DECLARED_FIELDS, MemberCategory.INVOKE_DECLARED_CONSTRUCTORS)
+                .test(hints));
+    }
+
+    @Test
+    void testRuntimeHints_TemplatesAndSchema_Resources() {
+        assertTrue(RuntimeHintsPredicates.resource().forResource("templates/index.html").test(hints));
+        assertTrue(RuntimeHintsPredicates.resource().forResource("static/schema/product.cddl").test(hints));
+    }
+}
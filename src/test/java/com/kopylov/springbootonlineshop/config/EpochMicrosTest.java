@@ -0,0 +1,61 @@
+package com.kopylov.springbootonlineshop.config;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EpochMicrosTest {
+
+    private ObjectMapper objectMapper;
+
+    @BeforeEach
+    public void init() {
+        objectMapper = WireFormatConfiguration.binaryObjectMapper(Jackson2ObjectMapperBuilder.json(),
+                new CBORFactory());
+    }
+
+    @Test
+    void testEpochMicros_ToEpochMicros_RoundTripsAroundEpoch() {
+        for (LocalDateTime dateTime : new LocalDateTime[]{
+                LocalDateTime.of(1970, 1, 1, 0, 0),
+                LocalDateTime.of(2023, 9, 1, 10, 0, 0, 123_456_000),
+                LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000)}) {
+            assertEquals(dateTime, EpochMicros.toLocalDateTime(EpochMicros.toEpochMicros(dateTime)));
+        }
+        assertEquals(-1, EpochMicros.toEpochMicros(LocalDateTime.of(1969, 12, 31, 23, 59, 59, 999_999_000)));
+        assertEquals(1_693_562_400_123_456L,
+                EpochMicros.toEpochMicros(LocalDateTime.of(2023, 9, 1, 10, 0, 0, 123_456_000)));
+    }
+
+    @Test
+    void testEpochMicros_Serializer_RoundTripsThroughCbor() throws Exception {
+        ProductDto productDto = ProductDto.builder()
+                .name("Phone")
+                .creationDate(LocalDateTime.of(2023, 9, 1, 10, 0, 0, 123_456_000))
+                .build();
+
+        byte[] payload = objectMapper.writeValueAsBytes(productDto);
+
+        assertEquals(1_693_562_400_123_456L, objectMapper.readTree(payload).get("creationDate").longValue());
+        assertEquals(productDto.getCreationDate(),
+                objectMapper.readValue(payload, ProductDto.class).getCreationDate());
+    }
+
+    @Test
+    void testEpochMicros_Deserializer_RejectsNonIntegerTokens() throws Exception {
+        for (Object creationDate : new Object[]{"2023-09-01T10:00:00", 1.5, true}) {
+            byte[] payload = objectMapper.writeValueAsBytes(Map.of("name", "Phone", "creationDate", creationDate));
+
+            assertThrows(MismatchedInputException.class, () -> objectMapper.readValue(payload, ProductDto.class));
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.kopylov.springbootonlineshop.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.MigrationInfo;
+import org.flywaydb.core.api.MigrationVersion;
+import org.flywaydb.core.api.configuration.FluentConfiguration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.util.StreamUtils;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Migrates a schema holding only the original V1 products table, as databases created before Flyway do, with the
+ * application's baseline settings. Runs outside a test transaction, since the concurrent index builds wait for every
+ * open one.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MigrationConfiguration.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class MigrationConfigurationTest {
+
+    private static final String SCHEMA = "migration_v1_test";
+
+    @Autowired
+    private DataSource dataSource;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${spring.flyway.baseline-version}")
+    private String baselineVersion;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+        jdbcTemplate.execute("CREATE SCHEMA " + SCHEMA);
+        String v1 = StreamUtils.copyToString(new ClassPathResource("db/migration/V1__create_product_table.sql")
+                .getInputStream(), StandardCharsets.UTF_8);
+        jdbcTemplate.execute("SET search_path TO " + SCHEMA + "; " + v1 + "; RESET search_path");
+        jdbcTemplate.update("INSERT INTO " + SCHEMA + ".products (name, price) VALUES ('Phone', 19.99)");
+    }
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.execute("DROP SCHEMA IF EXISTS " + SCHEMA + " CASCADE");
+    }
+
+    @Test
+    void testMigrationConfiguration_Migrate_BringsV1SchemaToLatestVersion() {
+        FluentConfiguration configuration = Flyway.configure()
+                .dataSource(dataSource)
+                .schemas(SCHEMA)
+                .baselineOnMigrate(true)
+                .baselineVersion(baselineVersion);
+        new MigrationConfiguration().sessionLevelMigrationLock().customize(configuration);
+        Flyway flyway = configuration.load();
+
+        flyway.migrate();
+
+        MigrationVersion latest = Arrays.stream(flyway.info().all()).map(MigrationInfo::getVersion)
+                .max(Comparator.naturalOrder()).orElseThrow();
+        assertEquals(0, flyway.info().pending().length);
+        assertEquals(latest, flyway.info().current().getVersion());
+        assertEquals(List.of("id", "name", "price", "creation_date", "version", "currency"),
+                jdbcTemplate.queryForList("SELECT column_name FROM information_schema.columns WHERE table_schema = ? "
+                        + "AND table_name = 'products' ORDER BY ordinal_position", String.class, SCHEMA));
+        assertEquals(1999L, jdbcTemplate.queryForObject("SELECT price FROM " + SCHEMA + ".products", Long.class));
+        assertEquals(List.of("catalog_version", "product_changes"),
+                jdbcTemplate.queryForList("SELECT table_name FROM information_schema.tables WHERE table_schema = ? "
+                        + "AND table_name IN ('catalog_version', 'product_changes') ORDER BY table_name",
+                        String.class, SCHEMA));
+    }
+}
@@ -1,8 +1,19 @@
 package com.kopylov.springbootonlineshop.controller;
 
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.kopylov.springbootonlineshop.config.EpochMicros;
+import com.kopylov.springbootonlineshop.config.WireFormatConfiguration;
+import com.kopylov.springbootonlineshop.dto.BulkItemResult;
+import com.kopylov.springbootonlineshop.dto.BulkItemStatus;
 import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductPage;
+import com.kopylov.springbootonlineshop.exceptions.InvalidCursorException;
 import com.kopylov.springbootonlineshop.exceptions.ProductNotFoundException;
+import com.kopylov.springbootonlineshop.exceptions.ProductVersionConflictException;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
 import com.kopylov.springbootonlineshop.model.Product;
 import com.kopylov.springbootonlineshop.services.ProductService;
 import org.hamcrest.CoreMatchers;
@@ -12,17 +23,28 @@ import org.mockito.ArgumentMatchers;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.result.MockMvcResultMatchers;
 
+import java.time.Instant;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
 
 import static org.hamcrest.Matchers.hasSize;
 import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
@@ -30,8 +52,11 @@ import static org.springframework.test.web.servlet.result.MockMvcResultHandlers.
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(controllers = ProductController.class)
+@Import(WireFormatConfiguration.class)
 class ProductControllerTest {
 
+    private static final MediaType SMILE = MediaType.parseMediaType("application/x-jackson-smile");
+
     @Autowired
     private MockMvc mockMvc;
     @Autowired
@@ -74,11 +99,45 @@ class ProductControllerTest {
                 .andExpect(content().contentType("application/json"))
                 .andExpect(header().string("Location", is("/create/1")))
                 .andExpect(jsonPath("$.name", CoreMatchers.is(productDto.getName())))
-                .andExpect(jsonPath("$.price", CoreMatchers.is(productDto.getPrice())))
+                .andExpect(jsonPath("$.price").value(productDto.getPrice()))
                 .andExpect(jsonPath("$.creationDate", CoreMatchers.is(productDto.getCreationDate().toString())))
                 .andDo(print());
     }
 
+    @Test
+    void testProductController_CreateProducts_ReturnPerItemResults() throws Exception {
+        ProductDto invalidProductDto = ProductDto.builder().name("").price(0).build();
+        when(productService.createProducts(ArgumentMatchers.anyList())).thenReturn(List.of(
+                new BulkItemResult(0, 1L, BulkItemStatus.CREATED, List.of()),
+                new BulkItemResult(1, null, BulkItemStatus.INVALID, List.of("Product name should not be empty"))));
+
+        mockMvc.perform(post("/products/bulk/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(List.of(productDto, invalidProductDto))))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$", hasSize(2)))
+                .andExpect(jsonPath("$[0].status", is("CREATED")))
+                .andExpect(jsonPath("$[0].id", is(1)))
+                .andExpect(jsonPath("$[1].status", is("INVALID")))
+                .andExpect(jsonPath("$[1].errors[0]", is("Product name should not be empty")))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_DeleteProducts_ReturnPerItemResults() throws Exception {
+        when(productService.deleteProducts(List.of(1L, 2L))).thenReturn(List.of(
+                new BulkItemResult(0, 1L, BulkItemStatus.DELETED, List.of()),
+                new BulkItemResult(1, 2L, BulkItemStatus.NOT_FOUND, List.of())));
+
+        mockMvc.perform(post("/products/bulk/delete")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[1, 2]"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].status", is("DELETED")))
+                .andExpect(jsonPath("$[1].status", is("NOT_FOUND")))
+                .andDo(print());
+    }
+
     @Test
     void testProductController_GetProduct_Return404NotFound() throws Exception {
         when(productService.getById(1L)).thenThrow(ProductNotFoundException.class);
@@ -96,10 +155,60 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$.name", CoreMatchers.is(productDto.getName())))
-                .andExpect(jsonPath("$.price", CoreMatchers.is(productDto.getPrice())))
+                .andExpect(jsonPath("$.price").value(productDto.getPrice()))
                 .andExpect(jsonPath("$.creationDate", CoreMatchers.is(productDto.getCreationDate().toString())));
     }
 
+    @Test
+    void testProductController_GetProduct_ReturnETagWithVersion() throws Exception {
+        productDto.setVersion(3);
+        when(productService.getById(1)).thenReturn(productDto);
+
+        mockMvc.perform(get("/products/1"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"3\""))
+                .andExpect(jsonPath("$.version", is(3)));
+    }
+
+    @Test
+    void testProductController_GetProduct_ReturnCborWithEpochMicros() throws Exception {
+        productDto.setCreationDate(LocalDateTime.of(2023, 9, 1, 10, 0, 0, 123_456_000));
+        when(productService.getById(1)).thenReturn(productDto);
+
+        byte[] body = mockMvc.perform(get("/products/1").accept(MediaType.APPLICATION_CBOR))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_CBOR))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        JsonNode product = new ObjectMapper(new CBORFactory()).readTree(body);
+        assertEquals("Phone", product.get("name").textValue());
+        assertTrue(product.get("creationDate").isIntegralNumber());
+        assertEquals(1_693_562_400_123_456L, product.get("creationDate").longValue());
+    }
+
+    @Test
+    void testProductController_CreateProducts_AcceptSmileBodyAndAnswerInSmile() throws Exception {
+        ObjectMapper smileMapper = new ObjectMapper(new SmileFactory());
+        LocalDateTime creationDate = LocalDateTime.of(2023, 9, 1, 10, 0, 0, 123_456_000);
+        byte[] request = smileMapper.writeValueAsBytes(List.of(Map.of("name", "Phone", "price", 1000,
+                "creationDate", EpochMicros.toEpochMicros(creationDate))));
+        when(productService.createProducts(ArgumentMatchers.anyList())).thenReturn(List.of(
+                new BulkItemResult(0, 1L, BulkItemStatus.CREATED, List.of())));
+
+        byte[] body = mockMvc.perform(post("/products/bulk/create")
+                        .contentType(SMILE)
+                        .accept(SMILE)
+                        .content(request))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(SMILE))
+                .andReturn().getResponse().getContentAsByteArray();
+
+        assertEquals("CREATED", smileMapper.readTree(body).get(0).get("status").textValue());
+        verify(productService).createProducts(argThat(products -> products.size() == 1
+                && products.get(0).getName().equals("Phone")
+                && products.get(0).getCreationDate().equals(creationDate)));
+    }
+
     @Test
     void testProductController_GetProducts_Return204NoContent() throws Exception {
         when(productService.findAll(anyString())).thenReturn(new ArrayList<>());
@@ -111,8 +220,8 @@ class ProductControllerTest {
     @Test
     void testProductController_GetProducts_ReturnListOfProductsAnd200Ok() throws Exception {
         List<Product> productList = new ArrayList<>();
-        productList.add(new Product(1L, "Phone", 1500, LocalDateTime.now()));
-        productList.add(new Product(2L, "Car", 10000, LocalDateTime.now()));
+        productList.add(new Product(1L, "Phone", 1500, "USD", LocalDateTime.now(), 0));
+        productList.add(new Product(2L, "Car", 10000, "USD", LocalDateTime.now(), 0));
 
         when(productService.findAll(anyString())).thenReturn(productList);
 
@@ -122,15 +231,188 @@ class ProductControllerTest {
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$[0].id", is(1)))
                 .andExpect(jsonPath("$[0].name", is("Phone")))
-                .andExpect(jsonPath("$[0].price", is(1500.0)))
+                .andExpect(jsonPath("$[0].price", is(1500)))
+                .andExpect(jsonPath("$[0].currency", is("USD")))
                 .andExpect(jsonPath("$[0].creationDate").exists())
                 .andExpect(jsonPath("$[1].id", is(2)))
                 .andExpect(jsonPath("$[1].name", is("Car")))
-                .andExpect(jsonPath("$[1].price", is(10000.0)))
+                .andExpect(jsonPath("$[1].price", is(10000)))
                 .andExpect(jsonPath("$[1].creationDate").exists())
                 .andDo(print());
     }
 
+    @Test
+    void testProductController_GetProducts_ReturnCatalogValidatorsAndCacheControl() throws Exception {
+        Instant lastModified = Instant.parse("2023-09-01T10:00:00Z");
+        when(productService.getCatalogVersion()).thenReturn(Optional.of(new CatalogVersion(7, lastModified)));
+        when(productService.findAll(anyString()))
+                .thenReturn(List.of(new Product(1L, "Phone", 1500, "USD", LocalDateTime.now(), 0)));
+
+        mockMvc.perform(get("/products")
+                        .param("sort", "name"))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"7\""))
+                .andExpect(header().dateValue("Last-Modified", lastModified.toEpochMilli()))
+                .andExpect(header().string("Cache-Control", "max-age=0, public, s-maxage=5, stale-while-revalidate=30"))
+                .andExpect(jsonPath("$", hasSize(1)))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_GetProducts_Return304NotModifiedWithoutReadingProducts() throws Exception {
+        when(productService.getCatalogVersion())
+                .thenReturn(Optional.of(new CatalogVersion(7, Instant.parse("2023-09-01T10:00:00Z"))));
+
+        mockMvc.perform(get("/products")
+                        .param("sort", "name")
+                        .header("If-None-Match", "\"7\""))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string("ETag", "W/\"7\""))
+                .andExpect(content().string(""))
+                .andDo(print());
+
+        verify(productService, never()).findAll(anyString());
+    }
+
+    @Test
+    void testProductController_GetProductsPage_Return304NotModifiedSinceLastModified() throws Exception {
+        Instant lastModified = Instant.parse("2023-09-01T10:00:00Z");
+        when(productService.getCatalogVersion()).thenReturn(Optional.of(new CatalogVersion(7, lastModified)));
+
+        mockMvc.perform(get("/products")
+                        .param("limit", "2")
+                        .header("If-Modified-Since", "Fri, 01 Sep 2023 10:00:00 GMT"))
+                .andExpect(status().isNotModified())
+                .andDo(print());
+
+        verify(productService, never()).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    void testProductController_GetProductsPage_ReturnPageAnd200Ok() throws Exception {
+        List<Product> productList = new ArrayList<>();
+        productList.add(new Product(1L, "Car", 10000, "USD", LocalDateTime.now(), 0));
+        productList.add(new Product(2L, "Phone", 1500, "USD", LocalDateTime.now(), 0));
+
+        when(productService.findPage("name", null, 2)).thenReturn(new ProductPage(productList, "next"));
+
+        mockMvc.perform(get("/products")
+                        .param("sort", "name")
+                        .param("limit", "2"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/json"))
+                .andExpect(jsonPath("$.products", hasSize(2)))
+                .andExpect(jsonPath("$.products[0].id", is(1)))
+                .andExpect(jsonPath("$.products[1].id", is(2)))
+                .andExpect(jsonPath("$.nextCursor", is("next")))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_GetProductsPage_Return400BadRequestOnInvalidCursor() throws Exception {
+        when(productService.findPage(null, "broken", 10)).thenThrow(InvalidCursorException.class);
+
+        mockMvc.perform(get("/products")
+                        .param("cursor", "broken")
+                        .param("limit", "10"))
+                .andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_GetProductsInPriceRange_ReturnPageAnd200Ok() throws Exception {
+        List<Product> productList = List.of(new Product(2L, "Phone", 1500, "USD", LocalDateTime.now(), 0));
+        when(productService.findPriceRange(1000, 2000, null, null, 20)).thenReturn(new ProductPage(productList, "next"));
+
+        mockMvc.perform(get("/products")
+                        .param("minPrice", "1000")
+                        .param("maxPrice", "2000"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products[0].price", is(1500)))
+                .andExpect(jsonPath("$.products[0].currency", is("USD")))
+                .andExpect(jsonPath("$.nextCursor", is("next")))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_CreateProducts_Return400BadRequestOnFractionalPrice() throws Exception {
+        mockMvc.perform(post("/products/bulk/create")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"name\":\"Phone\",\"price\":19.99}]"))
+                .andExpect(status().isBadRequest())
+                .andDo(print());
+
+        verify(productService, never()).createProducts(anyList());
+    }
+
+    @Test
+    void testProductController_SearchProducts_ReturnRankedPage() throws Exception {
+        List<Product> productList = List.of(new Product(1L, "Phone", 1500, "USD", LocalDateTime.now(), 0));
+        when(productService.search("pho", null, 10)).thenReturn(new ProductPage(productList, null));
+
+        mockMvc.perform(get("/products")
+                        .param("search", "pho")
+                        .param("limit", "10"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.products", hasSize(1)))
+                .andExpect(jsonPath("$.products[0].name", is("Phone")))
+                .andExpect(jsonPath("$.nextCursor").doesNotExist())
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_ExportProducts_StreamNdjson() throws Exception {
+        LocalDateTime creationDate = LocalDateTime.of(2023, 9, 1, 10, 0);
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1L, "Phone", 1500, "USD", creationDate, 0));
+            consumer.accept(new Product(2L, "Car", 10000, "USD", creationDate, 0));
+            return null;
+        }).when(productService).exportAll(any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/products/export"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("application/x-ndjson"))
+                .andExpect(content().string(
+                        "{\"id\":1,\"name\":\"Phone\",\"price\":1500,\"currency\":\"USD\",\"creationDate\":\"2023-09-01T10:00:00\",\"version\":0}\n" +
+                        "{\"id\":2,\"name\":\"Car\",\"price\":10000,\"currency\":\"USD\",\"creationDate\":\"2023-09-01T10:00:00\",\"version\":0}"))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_ExportProducts_StreamCsv() throws Exception {
+        LocalDateTime creationDate = LocalDateTime.of(2023, 9, 1, 10, 0);
+        doAnswer(invocation -> {
+            Consumer<Product> consumer = invocation.getArgument(0);
+            consumer.accept(new Product(1L, "Phone, \"new\"", 1500, "USD", creationDate, 0));
+            return null;
+        }).when(productService).exportAll(any());
+
+        MvcResult mvcResult = mockMvc.perform(get("/products/export")
+                        .param("format", "csv"))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType("text/csv"))
+                .andExpect(content().string("id,name,price,currency,creation_date\n" +
+                        "1,\"Phone, \"\"new\"\"\",15.00,USD,2023-09-01T10:00\n"))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_ExportProducts_Return400BadRequestOnUnknownFormat() throws Exception {
+        mockMvc.perform(get("/products/export")
+                        .param("format", "xml"))
+                .andExpect(status().isBadRequest())
+                .andDo(print());
+    }
+
     @Test
     void testProductController_UpdateProduct_Return404NotFound() throws Exception {
         ProductDto notExistProductDto = ProductDto.builder()
@@ -172,11 +454,71 @@ class ProductControllerTest {
                 .andExpect(status().isOk())
                 .andExpect(content().contentType("application/json"))
                 .andExpect(jsonPath("$.name", CoreMatchers.is(productDto.getName())))
-                .andExpect(jsonPath("$.price", CoreMatchers.is(productDto.getPrice())))
+                .andExpect(jsonPath("$.price").value(productDto.getPrice()))
                 .andExpect(jsonPath("$.creationDate", CoreMatchers.is(productDto.getCreationDate().toString())))
                 .andDo(print());
     }
 
+    @Test
+    void testProductController_UpdateProductIfMatch_ReturnNewETag() throws Exception {
+        ProductDto updatedProductDto = ProductDto.builder()
+                .id(1L)
+                .name("Phone")
+                .price(1000)
+                .creationDate(productDto.getCreationDate())
+                .version(4)
+                .build();
+        when(productService.update(eq(1L), ArgumentMatchers.any(), eq(3L))).thenReturn(updatedProductDto);
+
+        mockMvc.perform(put("/products/1/update")
+                        .header("If-Match", "\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(productDto)))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "W/\"4\""))
+                .andExpect(jsonPath("$.version", is(4)))
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_UpdateProductIfMatch_AcceptWeakETag() throws Exception {
+        when(productService.update(eq(1L), ArgumentMatchers.any(), eq(3L))).thenReturn(productDto);
+
+        mockMvc.perform(put("/products/1/update")
+                        .header("If-Match", "W/\"3\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(productDto)))
+                .andExpect(status().isOk())
+                .andDo(print());
+
+        verify(productService).update(eq(1L), ArgumentMatchers.any(), eq(3L));
+    }
+
+    @Test
+    void testProductController_UpdateProductIfMatch_Return412PreconditionFailedOnConflict() throws Exception {
+        when(productService.update(eq(1L), ArgumentMatchers.any(), eq(2L)))
+                .thenThrow(ProductVersionConflictException.class);
+
+        mockMvc.perform(put("/products/1/update")
+                        .header("If-Match", "\"2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(productDto)))
+                .andExpect(status().isPreconditionFailed())
+                .andDo(print());
+    }
+
+    @Test
+    void testProductController_UpdateProductIfMatch_Return412PreconditionFailedOnForeignETag() throws Exception {
+        mockMvc.perform(put("/products/1/update")
+                        .header("If-Match", "W/\"v2\"")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(productDto)))
+                .andExpect(status().isPreconditionFailed())
+                .andDo(print());
+
+        verifyNoInteractions(productService);
+    }
+
     @Test
     void testProductController_DeleteProduct_ReturnString() throws Exception {
         doNothing().when(productService).delete(1);
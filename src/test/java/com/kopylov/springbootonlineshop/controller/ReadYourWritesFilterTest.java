@@ -0,0 +1,57 @@
+package com.kopylov.springbootonlineshop.controller;
+
+import com.kopylov.springbootonlineshop.dao.routing.ReadRoutingContext;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.http.Cookie;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReadYourWritesFilterTest {
+
+    private final ReadYourWritesFilter filter = new ReadYourWritesFilter(Duration.ofSeconds(5));
+
+    @Test
+    void testReadYourWritesFilter_Write_PinsToPrimaryAndSetsCookie() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        boolean primaryRequired = primaryRequiredDuring(new MockHttpServletRequest("PUT", "/products/1/update"),
+                response);
+
+        assertTrue(primaryRequired);
+        Cookie cookie = response.getCookie(ReadYourWritesFilter.COOKIE_NAME);
+        assertNotNull(cookie);
+        assertEquals(5, cookie.getMaxAge());
+        assertFalse(ReadRoutingContext.isPrimaryRequired());
+    }
+
+    @Test
+    void testReadYourWritesFilter_ReadWithRecentWriteCookie_PinsToPrimary() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/products/1");
+        request.setCookies(new Cookie(ReadYourWritesFilter.COOKIE_NAME, "1"));
+
+        assertTrue(primaryRequiredDuring(request, new MockHttpServletResponse()));
+    }
+
+    @Test
+    void testReadYourWritesFilter_ReadWithoutCookie_UsesReplicas() throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        assertFalse(primaryRequiredDuring(new MockHttpServletRequest("GET", "/products"), response));
+        assertNull(response.getCookie(ReadYourWritesFilter.COOKIE_NAME));
+    }
+
+    private boolean primaryRequiredDuring(MockHttpServletRequest request, MockHttpServletResponse response)
+            throws Exception {
+        AtomicBoolean primaryRequired = new AtomicBoolean();
+        FilterChain chain = (servletRequest, servletResponse) ->
+                primaryRequired.set(ReadRoutingContext.isPrimaryRequired());
+        filter.doFilter(request, response, chain);
+        return primaryRequired.get();
+    }
+}
@@ -0,0 +1,91 @@
+package com.kopylov.springbootonlineshop.controller.limits;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AdaptiveConcurrencyLimiterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+
+    @Test
+    void testAdaptiveConcurrencyLimiter_Acquire_SteadyLatency_LimitGrows() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+
+        for (int i = 0; i < 20; i++) {
+            runFullRound(limiter, 10);
+        }
+
+        assertTrue(limiter.getLimit() > 20, "limit " + limiter.getLimit());
+    }
+
+    @Test
+    void testAdaptiveConcurrencyLimiter_Acquire_LatencyRisesUnderLoad_LimitShrinks() {
+        AdaptiveConcurrencyLimiter limiter = limiter(10);
+        for (int i = 0; i < 20; i++) {
+            runFullRound(limiter, 10);
+        }
+        int grown = limiter.getLimit();
+
+        for (int i = 0; i < 5; i++) {
+            runFullRound(limiter, 100);
+        }
+
+        assertTrue(limiter.getLimit() < grown / 2, "limit " + limiter.getLimit() + " after " + grown);
+        assertTrue(limiter.getLimit() >= 2);
+    }
+
+    @Test
+    void testAdaptiveConcurrencyLimiter_Acquire_LimitAndQueueFull_Refused() {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(2, 2, 2, 0, Duration.ZERO);
+
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+        assertNotNull(first);
+        assertNotNull(limiter.acquire());
+        assertNull(limiter.acquire());
+
+        first.release();
+        assertNotNull(limiter.acquire());
+        assertEquals(2, limiter.getInFlight());
+    }
+
+    @Test
+    void testAdaptiveConcurrencyLimiter_Acquire_LimitReached_QueuedRequestAdmittedOnRelease() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 1, Duration.ofSeconds(10));
+        AdaptiveConcurrencyLimiter.Permit first = limiter.acquire();
+
+        CompletableFuture<AdaptiveConcurrencyLimiter.Permit> queued = CompletableFuture.supplyAsync(limiter::acquire);
+        while (limiter.getQueued() == 0) {
+            Thread.onSpinWait();
+        }
+        assertNull(limiter.acquire(), "queue of one is already taken");
+        first.release();
+
+        assertNotNull(queued.get(5, TimeUnit.SECONDS));
+        assertEquals(0, limiter.getQueued());
+    }
+
+    private AdaptiveConcurrencyLimiter limiter(int initialLimit) {
+        return new AdaptiveConcurrencyLimiter(initialLimit, 2, 100, 0, Duration.ZERO, clock::get);
+    }
+
+    /**
+     * Fills the limit, lets {@code latencyMillis} pass and releases everything.
+     */
+    private void runFullRound(AdaptiveConcurrencyLimiter limiter, long latencyMillis) {
+        List<AdaptiveConcurrencyLimiter.Permit> permits = new ArrayList<>();
+        AdaptiveConcurrencyLimiter.Permit permit;
+        while ((permit = limiter.acquire()) != null) {
+            permits.add(permit);
+        }
+        clock.addAndGet(TimeUnit.MILLISECONDS.toNanos(latencyMillis));
+        permits.forEach(AdaptiveConcurrencyLimiter.Permit::release);
+    }
+}
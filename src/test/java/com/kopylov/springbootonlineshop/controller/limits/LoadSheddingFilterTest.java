@@ -0,0 +1,155 @@
+package com.kopylov.springbootonlineshop.controller.limits;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LoadSheddingFilterTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+    @Test
+    void testLoadSheddingFilter_BurstExhausted_Returns429WithRetryAfter() throws Exception {
+        LoadSheddingFilter filter = rateLimited(null);
+
+        assertEquals(200, get(filter, "/products/1", "10.0.0.1").getStatus());
+        assertEquals(200, get(filter, "/products/2", "10.0.0.1").getStatus());
+        MockHttpServletResponse limited = get(filter, "/products/3", "10.0.0.1");
+
+        assertEquals(429, limited.getStatus());
+        assertEquals("1", limited.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(1, registry.get("products.load.rejected")
+                .tag("reason", LoadSheddingFilter.RATE_LIMITED)
+                .tag("endpoint", "GET /products/{id}")
+                .counter().count());
+    }
+
+    @Test
+    void testLoadSheddingFilter_TokensRefill_AllowsAgain() throws Exception {
+        LoadSheddingFilter filter = rateLimited(null);
+        get(filter, "/products/1", "10.0.0.1");
+        get(filter, "/products/1", "10.0.0.1");
+
+        clock.addAndGet(TimeUnit.SECONDS.toNanos(1));
+
+        assertEquals(200, get(filter, "/products/1", "10.0.0.1").getStatus());
+        assertEquals(429, get(filter, "/products/1", "10.0.0.1").getStatus());
+    }
+
+    @Test
+    void testLoadSheddingFilter_BucketsPerClientAndEndpoint() throws Exception {
+        LoadSheddingFilter filter = rateLimited("X-Api-Key");
+        get(filter, "/products/1", "10.0.0.1");
+        get(filter, "/products/1", "10.0.0.1");
+
+        assertEquals(429, get(filter, "/products/1", "10.0.0.1").getStatus());
+        assertEquals(200, get(filter, "/products", "10.0.0.1").getStatus());
+        assertEquals(200, get(filter, "/products/1", "10.0.0.2").getStatus());
+
+        MockHttpServletRequest keyed = new MockHttpServletRequest("GET", "/products/1");
+        keyed.setRemoteAddr("10.0.0.1");
+        keyed.addHeader("X-Api-Key", "partner");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(keyed, response, new MockFilterChain());
+        assertEquals(200, response.getStatus());
+    }
+
+    @Test
+    void testLoadSheddingFilter_ConcurrencyLimitFull_Returns503() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0, Duration.ZERO);
+        LoadSheddingFilter filter = new LoadSheddingFilter(null, null, limiter, null, Duration.ofSeconds(3));
+        filter.bindTo(registry);
+        MockHttpServletResponse shed = new MockHttpServletResponse();
+
+        FilterChain chain = (request, response) -> {
+            try {
+                filter.doFilter(new MockHttpServletRequest("GET", "/products"), shed, new MockFilterChain());
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        filter.doFilter(new MockHttpServletRequest("GET", "/products/1"), new MockHttpServletResponse(), chain);
+
+        assertEquals(503, shed.getStatus());
+        assertEquals("3", shed.getHeader(HttpHeaders.RETRY_AFTER));
+        assertEquals(0, limiter.getInFlight());
+        assertEquals(1, registry.get("products.load.rejected").tag("reason", LoadSheddingFilter.OVERLOADED)
+                .counter().count());
+        assertEquals(1, registry.get("products.load.limit").gauge().value());
+    }
+
+    @Test
+    void testLoadSheddingFilter_OtherPaths_NotLimited() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0, Duration.ZERO);
+        LoadSheddingFilter filter = new LoadSheddingFilter(null, null, limiter, null, Duration.ofSeconds(1));
+        AdaptiveConcurrencyLimiter.Permit taken = limiter.acquire();
+
+        assertEquals(200, get(filter, "/actuator/health", "10.0.0.1").getStatus());
+        assertEquals(200, get(filter, "/products/changes", "10.0.0.1").getStatus());
+        assertEquals(503, get(filter, "/products", "10.0.0.1").getStatus());
+        taken.release();
+    }
+
+    @Test
+    void testLoadSheddingFilter_SemicolonContent_SharesEndpointBucket() throws Exception {
+        LoadSheddingFilter filter = rateLimited(null);
+        get(filter, "/products/1;a=1", "10.0.0.1");
+        get(filter, "/products/2;jsessionid=x", "10.0.0.1");
+
+        assertEquals(429, get(filter, "/products/3", "10.0.0.1").getStatus());
+        assertEquals(1, registry.get("products.load.rejected").tag("endpoint", "GET /products/{id}")
+                .counter().count());
+    }
+
+    @Test
+    void testLoadSheddingFilter_UnknownPaths_ShareOtherBucket() throws Exception {
+        LoadSheddingFilter filter = rateLimited(null);
+        get(filter, "/products/a", "10.0.0.1");
+        get(filter, "/products/b/c", "10.0.0.1");
+        get(filter, "/productsx", "10.0.0.1");
+        get(filter, "/products/d", "10.0.0.1");
+
+        assertEquals(200, get(filter, "/products", "10.0.0.1").getStatus());
+        assertEquals(2, registry.get("products.load.rejected").tag("endpoint", "GET " + LoadSheddingFilter.OTHER)
+                .counter().count());
+        assertEquals(1, registry.find("products.load.rejected").counters().size());
+    }
+
+    @Test
+    void testLoadSheddingFilter_LongLivedPathWithSemicolon_NotLimited() throws Exception {
+        AdaptiveConcurrencyLimiter limiter = new AdaptiveConcurrencyLimiter(1, 1, 1, 0, Duration.ZERO);
+        LoadSheddingFilter filter = new LoadSheddingFilter(null, null, limiter, null, Duration.ofSeconds(1));
+        AdaptiveConcurrencyLimiter.Permit taken = limiter.acquire();
+
+        assertEquals(200, get(filter, "/products/changes;x=1", "10.0.0.1").getStatus());
+        assertEquals(200, get(filter, "/products/export;x=1", "10.0.0.1").getStatus());
+        taken.release();
+    }
+
+    private LoadSheddingFilter rateLimited(String clientHeader) {
+        // One token a second, two at most.
+        TokenBucketRateLimiter reads = new TokenBucketRateLimiter(1, 2, Duration.ofMinutes(1), 100, clock::get);
+        LoadSheddingFilter filter = new LoadSheddingFilter(reads, null, null, clientHeader, Duration.ofSeconds(1));
+        filter.bindTo(registry);
+        return filter;
+    }
+
+    private MockHttpServletResponse get(LoadSheddingFilter filter, String path, String remoteAddr) throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        request.setRemoteAddr(remoteAddr);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response;
+    }
+}
@@ -0,0 +1,151 @@
+package com.kopylov.springbootonlineshop.controller.pages;
+
+import com.kopylov.springbootonlineshop.dto.ProductPage;
+import com.kopylov.springbootonlineshop.exceptions.InvalidCursorException;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.services.ProductService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.not;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(controllers = ProductPageController.class)
+class ProductPageControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @MockBean
+    private ProductService productService;
+
+    private long catalogVersion;
+
+    @BeforeEach
+    public void init() {
+        catalogVersion = 7;
+        when(productService.getCatalogVersion()).thenAnswer(invocation ->
+                Optional.of(new CatalogVersion(catalogVersion, Instant.parse("2023-09-01T10:00:00Z"))));
+        when(productService.findPage(any(), any(), anyInt())).thenReturn(new ProductPage(List.of(
+                new Product(1L, "Phone", 1500, "USD", LocalDateTime.of(2023, 9, 1, 10, 0), 0),
+                new Product(2L, "<b>Bike</b>", 300, "USD", LocalDateTime.of(2023, 9, 2, 10, 0), 0)), "next-cursor"));
+    }
+
+    @Test
+    void testProductPageController_GetCatalogPage_RendersPageWithNextLink() throws Exception {
+        mockMvc.perform(asyncDispatch(start("/product?sort=price&limit=2")))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "W/\"7\""))
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL,
+                        "max-age=0, public, s-maxage=5, stale-while-revalidate=30"))
+                .andExpect(content().contentTypeCompatibleWith("text/html"))
+                .andExpect(content().string(containsString("Phone")))
+                .andExpect(content().string(containsString("&lt;b&gt;Bike&lt;/b&gt;")))
+                .andExpect(content().string(not(containsString("<b>Bike</b>"))))
+                .andExpect(content().string(containsString("?sort=price&amp;limit=2&amp;cursor=next-cursor")));
+
+        verify(productService).findPage("price", null, 2);
+    }
+
+    @Test
+    void testProductPageController_GetCatalogPage_ServesCachedPageUntilCatalogChanges() throws Exception {
+        String rendered = mockMvc.perform(asyncDispatch(start("/product?sort=name")))
+                .andReturn().getResponse().getContentAsString();
+
+        mockMvc.perform(asyncDispatch(start("/product?sort=name")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(rendered));
+        verify(productService, times(1)).findPage("name", null, 50);
+
+        catalogVersion = 8;
+        mockMvc.perform(asyncDispatch(start("/product?sort=name")));
+        verify(productService, times(2)).findPage("name", null, 50);
+    }
+
+    @Test
+    void testProductPageController_GetCatalogPage_ClampsLimitBeforeCaching() throws Exception {
+        mockMvc.perform(asyncDispatch(start("/product?limit=5000")))
+                .andExpect(content().string(containsString("limit=1000&amp;cursor=next-cursor")));
+        mockMvc.perform(asyncDispatch(start("/product?limit=1001")));
+        mockMvc.perform(asyncDispatch(start("/product?limit=-3")));
+
+        verify(productService, times(1)).findPage(null, null, 1000);
+        verify(productService, times(1)).findPage(null, null, 1);
+    }
+
+    @Test
+    void testProductPageController_GetCatalogPage_SkipsCacheWhenVersionMovesDuringRead() throws Exception {
+        when(productService.findPage(any(), any(), anyInt())).thenAnswer(invocation -> {
+            catalogVersion++;
+            return new ProductPage(List.of(), null);
+        });
+
+        mockMvc.perform(asyncDispatch(start("/product?sort=date")));
+        doReturn(new ProductPage(List.of(), null)).when(productService).findPage(any(), any(), anyInt());
+        mockMvc.perform(asyncDispatch(start("/product?sort=date")));
+        mockMvc.perform(asyncDispatch(start("/product?sort=date")));
+
+        verify(productService, times(2)).findPage("date", null, 50);
+    }
+
+    @Test
+    void testProductPageController_GetSearchPage_KeysCacheByEachParameter() throws Exception {
+        when(productService.search(any(), any(), anyInt())).thenReturn(new ProductPage(List.of(), null));
+
+        mockMvc.perform(asyncDispatch(start("/product?search=x, cursor=y")));
+        mockMvc.perform(asyncDispatch(start("/product?search=x&cursor=y")));
+
+        verify(productService).search("x, cursor=y", null, 50);
+        verify(productService).search("x", "y", 50);
+    }
+
+    @Test
+    void testProductPageController_GetCatalogPage_Return304NotModified() throws Exception {
+        mockMvc.perform(get("/product").header(HttpHeaders.IF_NONE_MATCH, "\"7\""))
+                .andExpect(status().isNotModified());
+
+        verify(productService, never()).findPage(any(), any(), anyInt());
+    }
+
+    @Test
+    void testProductPageController_GetSearchPage_RendersSearchResults() throws Exception {
+        when(productService.search("pho", null, 50)).thenReturn(new ProductPage(List.of(
+                new Product(1L, "Phone", 1500, "USD", LocalDateTime.of(2023, 9, 1, 10, 0), 0)), null));
+
+        mockMvc.perform(asyncDispatch(start("/product?search=pho")))
+                .andExpect(status().isOk())
+                .andExpect(content().string(containsString("Phone")))
+                .andExpect(content().string(not(containsString("Next page"))));
+    }
+
+    @Test
+    void testProductPageController_GetCatalogPage_Return400ForInvalidCursor() throws Exception {
+        when(productService.findPage(any(), eq("bad"), anyInt())).thenThrow(new InvalidCursorException("bad"));
+
+        mockMvc.perform(get("/product?cursor=bad"))
+                .andExpect(status().isBadRequest());
+    }
+
+    private MvcResult start(String url) throws Exception {
+        return mockMvc.perform(get(url))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+    }
+}
@@ -0,0 +1,142 @@
+package com.kopylov.springbootonlineshop.dao.cache;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dao.routing.ReadRoutingContext;
+import com.kopylov.springbootonlineshop.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class CachingProductsDaoTest {
+
+    private ProductsDao delegate;
+    private CachingProductsDao cachingProductsDao;
+    private Product product;
+
+    @BeforeEach
+    public void init() {
+        delegate = mock(ProductsDao.class);
+        cachingProductsDao = new CachingProductsDao(delegate, 100, Duration.ofMinutes(1));
+        product = new Product(1L, "Phone", 1000, "USD", LocalDateTime.now(), 0);
+    }
+
+    @Test
+    void testCachingProductsDao_FindById_LoadsOnceAndCountsHits() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(product));
+
+        cachingProductsDao.findById(1L);
+        Optional<Product> cached = cachingProductsDao.findById(1L);
+
+        assertEquals("Phone", cached.orElseThrow().getName());
+        verify(delegate, times(1)).findById(1L);
+        assertEquals(1, cachingProductsDao.getByIdStats().hitCount());
+        assertEquals(1, cachingProductsDao.getByIdStats().missCount());
+    }
+
+    @Test
+    void testCachingProductsDao_FindById_LoadsFromPrimaryOutsideReadYourWritesWindow() {
+        ReadRoutingContext.open(false);
+        try {
+            when(delegate.findById(1L)).thenAnswer(invocation -> {
+                assertTrue(ReadRoutingContext.isPrimaryRequired());
+                return Optional.of(product);
+            });
+            when(delegate.findByName("Phone")).thenAnswer(invocation -> {
+                assertTrue(ReadRoutingContext.isPrimaryRequired());
+                return List.of(product);
+            });
+
+            cachingProductsDao.findById(1L);
+            cachingProductsDao.findByName("Phone");
+
+            assertFalse(ReadRoutingContext.isPrimaryRequired());
+        } finally {
+            ReadRoutingContext.close();
+        }
+    }
+
+    @Test
+    void testCachingProductsDao_FindById_ReturnsCopies() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(product));
+
+        cachingProductsDao.findById(1L).orElseThrow().setName("Changed");
+
+        assertEquals("Phone", cachingProductsDao.findById(1L).orElseThrow().getName());
+    }
+
+    @Test
+    void testCachingProductsDao_Update_InvalidatesByIdAndByName() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(product));
+        when(delegate.findByName("Phone")).thenReturn(List.of(product));
+        cachingProductsDao.findById(1L);
+        cachingProductsDao.findByName("Phone");
+
+        Product updated = new Product(1L, "Tablet", 1200, "USD", product.getCreationDate(), 0);
+        cachingProductsDao.update(updated);
+        when(delegate.findById(1L)).thenReturn(Optional.of(updated));
+        when(delegate.findByName("Phone")).thenReturn(List.of());
+
+        assertEquals("Tablet", cachingProductsDao.findById(1L).orElseThrow().getName());
+        assertTrue(cachingProductsDao.findByName("Phone").isEmpty());
+    }
+
+    @Test
+    void testCachingProductsDao_Save_InvalidatesByName() {
+        when(delegate.findByName("Phone")).thenReturn(List.of());
+        cachingProductsDao.findByName("Phone");
+
+        cachingProductsDao.save(product);
+        when(delegate.findByName("Phone")).thenReturn(List.of(product));
+
+        assertEquals(1, cachingProductsDao.findByName("Phone").size());
+    }
+
+    @Test
+    void testCachingProductsDao_Delete_InvalidatesById() {
+        when(delegate.findById(1L)).thenReturn(Optional.of(product));
+        cachingProductsDao.findById(1L);
+
+        cachingProductsDao.delete(1L);
+        when(delegate.findById(1L)).thenReturn(Optional.empty());
+
+        assertTrue(cachingProductsDao.findById(1L).isEmpty());
+    }
+
+    @Test
+    void testCachingProductsDao_FindByName_LoadRacingWithWriteNotCached() {
+        Product renamed = new Product(1L, "Tablet", 1000, "USD", product.getCreationDate(), 1);
+        when(delegate.findByName("Phone")).thenAnswer(invocation -> {
+            // The rename commits while this read of the old row is in flight.
+            cachingProductsDao.update(renamed);
+            return List.of(product);
+        }).thenReturn(List.of());
+
+        assertEquals(1, cachingProductsDao.findByName("Phone").size());
+
+        assertTrue(cachingProductsDao.findByName("Phone").isEmpty());
+        verify(delegate, times(2)).findByName("Phone");
+    }
+
+    @Test
+    void testCachingProductsDao_DeleteAll_InvalidatesOnlyNamesListingDeletedIds() {
+        Product other = new Product(2L, "Bike", 300, "USD", product.getCreationDate(), 0);
+        when(delegate.findByName("Phone")).thenReturn(List.of(product));
+        when(delegate.findByName("Bike")).thenReturn(List.of(other));
+        cachingProductsDao.findByName("Phone");
+        cachingProductsDao.findByName("Bike");
+
+        cachingProductsDao.deleteAll(List.of(1L));
+        cachingProductsDao.findByName("Phone");
+        cachingProductsDao.findByName("Bike");
+
+        verify(delegate, times(2)).findByName("Phone");
+        verify(delegate, times(1)).findByName("Bike");
+    }
+}
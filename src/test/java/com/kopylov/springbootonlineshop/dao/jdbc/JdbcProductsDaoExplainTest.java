@@ -0,0 +1,80 @@
+package com.kopylov.springbootonlineshop.dao.jdbc;
+
+import com.kopylov.springbootonlineshop.config.MigrationConfiguration;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks against the configured PostgreSQL database, migrated by Flyway, that the queries of
+ * {@link JdbcProductsDao} are planned on an index. Sequential scans are switched off for the test transaction, so
+ * the planner picks an index wherever one applies whatever the table size, and falls back to a sequential scan
+ * only where none does.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MigrationConfiguration.class)
+class JdbcProductsDaoExplainTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void disableSequentialScans() {
+        jdbcTemplate.execute("SET LOCAL enable_seqscan = off");
+    }
+
+    @Test
+    void testExplain_FindByName_UsesNameIndex() {
+        assertUsesIndex("products_name_c_id_idx", JdbcProductsDao.SELECT_PRODUCT_BY_NAME_SQL, "Phone");
+    }
+
+    @Test
+    void testExplain_SortedPages_UseKeysetIndexes() {
+        assertUsesIndex("products_name_c_id_idx",
+                JdbcProductsDao.SELECT_PRODUCTS_PAGE_SQL.formatted(ProductSort.NAME.getColumn()), 20);
+        assertUsesIndex("products_name_c_id_idx",
+                JdbcProductsDao.SELECT_PRODUCTS_PAGE_AFTER_SQL.formatted(ProductSort.NAME.getColumn()), "M", 10L, 20);
+        assertUsesIndex("products_price_id_idx",
+                JdbcProductsDao.SELECT_PRODUCTS_PAGE_AFTER_SQL.formatted(ProductSort.PRICE.getColumn()), 1000L, 10L,
+                20);
+        assertUsesIndex("products_creation_date_id_idx",
+                JdbcProductsDao.SELECT_PRODUCTS_PAGE_AFTER_SQL.formatted(ProductSort.DATE.getColumn()),
+                Timestamp.valueOf(LocalDateTime.of(2023, 1, 1, 0, 0)), 10L, 20);
+    }
+
+    @Test
+    void testExplain_PriceRange_UsesCurrencyPriceIndex() {
+        assertUsesIndex("products_currency_price_idx", JdbcProductsDao.SELECT_PRICE_RANGE_AFTER_SQL,
+                "USD", 100L, 5000L, 1000L, 10L, 20);
+    }
+
+    @Test
+    void testExplain_Search_UsesNameSearchIndexes() {
+        assertUsesIndex("products_lower_name_idx", JdbcProductsDao.SEARCH_PRODUCTS_BY_PREFIX_SQL,
+                "ph", "pi", "ph%", 20, 0);
+        assertUsesIndex("products_lower_name_idx", JdbcProductsDao.SEARCH_PRODUCTS_BY_OPEN_PREFIX_SQL,
+                "ph", "ph%", 20, 0);
+        assertUsesIndex("products_lower_name_trgm_idx", JdbcProductsDao.SEARCH_PRODUCTS_BY_SUBSTRING_SQL,
+                "%phone%", "phone", "phone%", "phone", 20, 0);
+    }
+
+    private void assertUsesIndex(String index, String sql, Object... parameters) {
+        List<String> plan = jdbcTemplate.queryForList("EXPLAIN " + sql, String.class, parameters);
+        String text = String.join("\n", plan);
+        assertFalse(text.contains("Seq Scan"), text);
+        assertTrue(Pattern.compile("(using|on) " + index + "\\b").matcher(text).find(), text);
+    }
+}
@@ -0,0 +1,96 @@
+package com.kopylov.springbootonlineshop.dao.jdbc;
+
+import com.kopylov.springbootonlineshop.config.MigrationConfiguration;
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Runs {@link JdbcProductsDao} against the configured PostgreSQL database, migrated by Flyway. Each test rolls back.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MigrationConfiguration.class)
+class JdbcProductsDaoTest {
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private JdbcProductsDao productsDao;
+
+    @BeforeEach
+    void setUp() {
+        productsDao = new JdbcProductsDao(jdbcTemplate, jdbcTemplate, 1000, 1000);
+    }
+
+    @Test
+    void testJdbcProductsDao_PrefixUpperBound_FollowsCodePointOrder() {
+        assertEquals(Optional.of("pi"), JdbcProductsDao.prefixUpperBound("ph"));
+        assertEquals(Optional.of("a\uD800\uDC00"), JdbcProductsDao.prefixUpperBound("a\uFFFF"));
+        assertEquals(Optional.of("a\uD83D\uDE01"), JdbcProductsDao.prefixUpperBound("a\uD83D\uDE00"));
+        assertEquals(Optional.of("\uE000"), JdbcProductsDao.prefixUpperBound("\uD7FF"));
+        assertEquals(Optional.of("b"), JdbcProductsDao.prefixUpperBound("a\uDBFF\uDFFF"));
+        assertEquals(Optional.of("b"), JdbcProductsDao.prefixUpperBound("a\uD83D"));
+        assertEquals(Optional.empty(), JdbcProductsDao.prefixUpperBound("\uDBFF\uDFFF"));
+    }
+
+    @Test
+    void testJdbcProductsDao_Search_PrefixEndingInMaxCharactersMatches() {
+        save("a\uFFFF");
+        save("a\uFFFFz");
+        save("a\uD800\uDC00");
+        save("\uD83D\uDE00x");
+        save("\uD83D\uDE01");
+        save("\uDBFF\uDFFFy");
+
+        assertEquals(List.of("a\uFFFF", "a\uFFFFz"), names(productsDao.search("a\uFFFF", 0, 10)));
+        assertEquals(List.of("\uD83D\uDE00x"), names(productsDao.search("\uD83D\uDE00", 0, 10)));
+        assertEquals(List.of("\uDBFF\uDFFFy"), names(productsDao.search("\uDBFF\uDFFF", 0, 10)));
+    }
+
+    @Test
+    void testJdbcProductsDao_Update_WithoutCurrencyKeepsStoredCurrency() {
+        long id = save("Phone", "EUR");
+        long otherId = save("Bike", "GBP");
+
+        Product updated = productsDao.update(Product.builder().id(id).name("Phone").price(200).build()).orElseThrow();
+        productsDao.update(Product.builder().id(id).name("Phone").price(300).build(), updated.getVersion());
+        productsDao.updateAll(List.of(Product.builder().id(otherId).name("Bike").price(400).build()));
+
+        assertEquals("EUR", updated.getCurrency());
+        assertEquals("EUR", productsDao.findById(id).orElseThrow().getCurrency());
+        assertEquals(300, productsDao.findById(id).orElseThrow().getPrice());
+        assertEquals("GBP", productsDao.findById(otherId).orElseThrow().getCurrency());
+        assertEquals("USD", productsDao.update(Product.builder().id(id).name("Phone").price(300).currency("USD")
+                .build()).orElseThrow().getCurrency());
+    }
+
+    private void save(String name) {
+        save(name, Money.DEFAULT_CURRENCY);
+    }
+
+    private long save(String name, String currency) {
+        return productsDao.save(Product.builder()
+                .name(name)
+                .price(100)
+                .currency(currency)
+                .creationDate(LocalDateTime.of(2023, 1, 1, 0, 0))
+                .build());
+    }
+
+    private static List<String> names(List<Product> products) {
+        return products.stream().map(Product::getName).toList();
+    }
+}
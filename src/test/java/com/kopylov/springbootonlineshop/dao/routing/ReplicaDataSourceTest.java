@@ -0,0 +1,87 @@
+package com.kopylov.springbootonlineshop.dao.routing;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class ReplicaDataSourceTest {
+
+    private DataSource primary;
+    private DataSource firstReplica;
+    private DataSource secondReplica;
+    private Connection primaryConnection;
+    private Connection firstConnection;
+    private Connection secondConnection;
+    private ReplicaDataSource replicaDataSource;
+
+    @BeforeEach
+    public void init() throws SQLException {
+        primary = mock(DataSource.class);
+        firstReplica = mock(DataSource.class);
+        secondReplica = mock(DataSource.class);
+        primaryConnection = mock(Connection.class);
+        firstConnection = mock(Connection.class);
+        secondConnection = mock(Connection.class);
+        when(primary.getConnection()).thenReturn(primaryConnection);
+        when(firstReplica.getConnection()).thenReturn(firstConnection);
+        when(secondReplica.getConnection()).thenReturn(secondConnection);
+        replicaDataSource = new ReplicaDataSource(primary, List.of(firstReplica, secondReplica), Duration.ofMinutes(1));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        ReadRoutingContext.close();
+    }
+
+    @Test
+    void testReplicaDataSource_GetConnection_RoundRobinWithoutContext() throws SQLException {
+        assertSame(firstConnection, replicaDataSource.getConnection());
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        assertSame(firstConnection, replicaDataSource.getConnection());
+        verifyNoInteractions(primary);
+    }
+
+    @Test
+    void testReplicaDataSource_GetConnection_StaysOnOneReplicaWithinContext() throws SQLException {
+        ReadRoutingContext.open(false);
+
+        assertSame(firstConnection, replicaDataSource.getConnection());
+        assertSame(firstConnection, replicaDataSource.getConnection());
+
+        ReadRoutingContext.close();
+        ReadRoutingContext.open(false);
+
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        assertSame(secondConnection, replicaDataSource.getConnection());
+    }
+
+    @Test
+    void testReplicaDataSource_GetConnection_SkipsUnavailableReplicaAndSticksToNext() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        ReadRoutingContext.open(false);
+
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        assertSame(secondConnection, replicaDataSource.getConnection());
+        verify(firstReplica, times(1)).getConnection();
+    }
+
+    @Test
+    void testReplicaDataSource_GetConnection_FallsBackToPrimaryAndSkipsFailedReplicas() throws SQLException {
+        when(firstReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+        when(secondReplica.getConnection()).thenThrow(new SQLException("Connection refused"));
+
+        assertSame(primaryConnection, replicaDataSource.getConnection());
+        assertSame(primaryConnection, replicaDataSource.getConnection());
+        verify(firstReplica, times(1)).getConnection();
+        verify(secondReplica, times(1)).getConnection();
+    }
+}
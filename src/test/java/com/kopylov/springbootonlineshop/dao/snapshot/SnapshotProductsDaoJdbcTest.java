@@ -0,0 +1,88 @@
+package com.kopylov.springbootonlineshop.dao.snapshot;
+
+import com.kopylov.springbootonlineshop.config.MigrationConfiguration;
+import com.kopylov.springbootonlineshop.dao.jdbc.JdbcProductsDao;
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the snapshot with the SQL it stands in for, on the configured PostgreSQL database. The test transaction
+ * shadows {@code products} with an empty temporary copy, so both paths see only the rows saved here.
+ */
+@JdbcTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(MigrationConfiguration.class)
+class SnapshotProductsDaoJdbcTest {
+
+    private static final List<String> NAMES = Arrays.asList("apple", "Apple", "APPLE", "banana", "Zebra", "zebra",
+            "\u00C9clair", "Eclair", "\u00E9clair", "\u00C4rger", "Arger", "\uFFFD", "\uE000",
+            "\uD83D\uDE00", "10", "9", "a b", "ab", null);
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private JdbcProductsDao jdbcProductsDao;
+    private SnapshotProductsDao snapshotProductsDao;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate.execute("CREATE TEMPORARY TABLE products (LIKE public.products INCLUDING ALL) ON COMMIT DROP");
+        jdbcProductsDao = new JdbcProductsDao(jdbcTemplate, jdbcTemplate, 1000, 1000);
+        snapshotProductsDao = new SnapshotProductsDao(jdbcProductsDao, new TransactionTemplate(transactionManager));
+        // Saved directly, since the DAO does not write missing names or dates; every third row has no date.
+        for (int i = 0; i < NAMES.size(); i++) {
+            jdbcTemplate.update("INSERT INTO products (name, price, currency, creation_date) VALUES (?, ?, ?, ?)",
+                    NAMES.get(i), 100 * (i % 4), Money.DEFAULT_CURRENCY,
+                    i % 3 == 0 ? null : Timestamp.valueOf(LocalDateTime.of(2023, 1, 1 + i % 5, 0, 0)));
+        }
+    }
+
+    @ParameterizedTest
+    @EnumSource(ProductSort.class)
+    void testSnapshotProductsDao_FindAll_OrderMatchesSql(ProductSort sort) {
+        List<Product> fromSql = jdbcProductsDao.findAll(sort);
+        List<Product> fromSnapshot = snapshotProductsDao.findAll(sort);
+
+        assertEquals(NAMES.size(), fromSql.size());
+        assertEquals(ids(fromSql), ids(fromSnapshot));
+    }
+
+    @Test
+    void testSnapshotProductsDao_FindPage_CursorFromSnapshotPagesSqlInStep() {
+        // Keyset pages compare (name, id) with the cursor, which is never true for a missing name.
+        List<Product> fromSnapshot = snapshotProductsDao.findAll(ProductSort.NAME).stream()
+                .filter(product -> product.getName() != null)
+                .toList();
+
+        for (int i = 0; i < fromSnapshot.size(); i++) {
+            List<Product> page = jdbcProductsDao.findPage(ProductSort.NAME, fromSnapshot.get(i), 3);
+            assertEquals(ids(fromSnapshot.subList(i + 1, Math.min(i + 4, fromSnapshot.size()))), ids(page));
+        }
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
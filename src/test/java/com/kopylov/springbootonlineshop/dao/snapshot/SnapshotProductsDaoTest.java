@@ -0,0 +1,187 @@
+package com.kopylov.springbootonlineshop.dao.snapshot;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.model.CatalogVersion;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductSort;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.*;
+
+class SnapshotProductsDaoTest {
+
+    private static final LocalDateTime DATE = LocalDateTime.of(2023, 9, 1, 10, 0, 0, 123_456_000);
+
+    private ProductsDao delegate;
+    private PlatformTransactionManager transactionManager;
+    private SnapshotProductsDao snapshotProductsDao;
+    private long catalogVersion;
+
+    @BeforeEach
+    public void init() {
+        delegate = mock(ProductsDao.class);
+        transactionManager = mock(PlatformTransactionManager.class);
+        snapshotProductsDao = new SnapshotProductsDao(delegate, new TransactionTemplate(transactionManager));
+        catalogVersion = 1;
+        when(delegate.findCatalogVersion())
+                .thenAnswer(invocation -> Optional.of(new CatalogVersion(catalogVersion, Instant.now())));
+        when(delegate.findAll()).thenReturn(new ArrayList<>(List.of(
+                new Product(3L, "Car", 10000, "USD", DATE.plusDays(1), 0),
+                new Product(1L, "Phone", 1500, "USD", DATE, 2),
+                new Product(2L, "Bike", 1500, "USD", DATE.plusDays(2), 0))));
+    }
+
+    @Test
+    void testSnapshotProductsDao_FindAll_WalksPresortedOrdersWithIdTieBreak() {
+        assertEquals(List.of(2L, 3L, 1L), ids(snapshotProductsDao.findAll(ProductSort.NAME)));
+        assertEquals(List.of(1L, 2L, 3L), ids(snapshotProductsDao.findAll(ProductSort.PRICE)));
+        assertEquals(List.of(1L, 3L, 2L), ids(snapshotProductsDao.findAll(ProductSort.DATE)));
+
+        Product phone = snapshotProductsDao.findAll(ProductSort.DATE).get(0);
+        assertEquals("Phone", phone.getName());
+        assertEquals(1500, phone.getPrice());
+        assertEquals(DATE, phone.getCreationDate());
+        assertEquals(2, phone.getVersion());
+        verify(delegate, times(1)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_FindAll_ReloadsWhenCatalogVersionMoves() {
+        snapshotProductsDao.findAll(ProductSort.NAME);
+        catalogVersion = 5;
+
+        snapshotProductsDao.findAll(ProductSort.NAME);
+
+        verify(delegate, times(2)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_FindAll_LoadsVersionAndRowsInOneReadOnlyTransaction() {
+        catalogVersion = 4;
+        when(delegate.findCatalogVersion()).thenReturn(
+                Optional.of(new CatalogVersion(4, Instant.now())),
+                Optional.of(new CatalogVersion(6, Instant.now())));
+
+        snapshotProductsDao.findAll(ProductSort.NAME);
+        snapshotProductsDao.findAll(ProductSort.NAME);
+
+        InOrder inOrder = inOrder(transactionManager, delegate);
+        inOrder.verify(transactionManager).getTransaction(argThat(definition -> definition.isReadOnly()
+                && definition.getIsolationLevel() == TransactionDefinition.ISOLATION_REPEATABLE_READ));
+        inOrder.verify(delegate).findCatalogVersion();
+        inOrder.verify(delegate).findAll();
+        inOrder.verify(transactionManager).commit(any());
+        verify(delegate, times(1)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_Save_AppliesNextVersionInPlace() {
+        snapshotProductsDao.findAll(ProductSort.NAME);
+        when(delegate.save(any())).thenAnswer(invocation -> {
+            catalogVersion++;
+            return 4L;
+        });
+
+        long id = snapshotProductsDao.save(new Product(0, "Boat", 1200, "USD", DATE.plusDays(3), 0));
+
+        assertEquals(4L, id);
+        assertEquals(List.of(2L, 4L, 3L, 1L), ids(snapshotProductsDao.findAll(ProductSort.NAME)));
+        assertEquals(List.of(4L, 1L, 2L, 3L), ids(snapshotProductsDao.findAll(ProductSort.PRICE)));
+        assertEquals(List.of(1L, 3L, 2L, 4L), ids(snapshotProductsDao.findAll(ProductSort.DATE)));
+        verify(delegate, times(1)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_Update_RepositionsUpdatedRow() {
+        snapshotProductsDao.findAll(ProductSort.NAME);
+        Product updated = new Product(1L, "Airplane", 99, "USD", DATE, 3);
+        when(delegate.update(any())).thenAnswer(invocation -> {
+            catalogVersion++;
+            return Optional.of(updated);
+        });
+
+        snapshotProductsDao.update(updated);
+
+        assertEquals(List.of(1L, 2L, 3L), ids(snapshotProductsDao.findAll(ProductSort.NAME)));
+        assertEquals(3, snapshotProductsDao.findAll(ProductSort.NAME).get(0).getVersion());
+        verify(delegate, times(1)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_Update_MissWithMovedVersionDropsSnapshot() {
+        snapshotProductsDao.findAll(ProductSort.NAME);
+        when(delegate.update(any(), anyLong())).thenAnswer(invocation -> {
+            catalogVersion++;
+            return Optional.empty();
+        });
+
+        snapshotProductsDao.update(new Product(1L, "Airplane", 99, "USD", DATE, 0), 1);
+        snapshotProductsDao.findAll(ProductSort.NAME);
+
+        verify(delegate, times(2)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_Delete_RemovesRow() {
+        snapshotProductsDao.findAll(ProductSort.NAME);
+        when(delegate.delete(3L)).thenAnswer(invocation -> {
+            catalogVersion++;
+            return true;
+        });
+
+        assertTrue(snapshotProductsDao.delete(3L));
+
+        assertEquals(List.of(2L, 1L), ids(snapshotProductsDao.findAll(ProductSort.NAME)));
+        assertEquals(List.of(1L, 2L), ids(snapshotProductsDao.findAll(ProductSort.DATE)));
+        verify(delegate, times(1)).findAll();
+    }
+
+    @Test
+    void testSnapshotProductsDao_FindPriceRange_SeeksIntoPriceOrder() {
+        when(delegate.findAll()).thenReturn(new ArrayList<>(List.of(
+                new Product(3L, "Car", 10000, "USD", DATE, 0),
+                new Product(1L, "Phone", 1500, "USD", DATE, 0),
+                new Product(4L, "Scooter", 1500, "EUR", DATE, 0),
+                new Product(2L, "Bike", 1500, "USD", DATE, 0),
+                new Product(5L, "Pen", 99, "USD", DATE, 0))));
+
+        assertEquals(List.of(1L, 2L, 3L), ids(snapshotProductsDao.findPriceRange("USD", 100, 10000, null, 10)));
+        assertEquals(List.of(1L), ids(snapshotProductsDao.findPriceRange("USD", 100, 10000, null, 1)));
+        assertEquals(List.of(2L, 3L), ids(snapshotProductsDao.findPriceRange("USD", 100, 10000,
+                Product.builder().id(1L).price(1500).build(), 10)));
+        assertEquals(List.of(4L), ids(snapshotProductsDao.findPriceRange("EUR", 0, 1500, null, 10)));
+        assertEquals(List.of(), ids(snapshotProductsDao.findPriceRange("USD", 1501, 9999, null, 10)));
+        verify(delegate, times(1)).findAll();
+        verify(delegate, never()).findPriceRange(any(), anyLong(), anyLong(), any(), anyInt());
+    }
+
+    @Test
+    void testSnapshotProductsDao_FindAll_FallsBackWithoutCatalogVersion() {
+        when(delegate.findCatalogVersion()).thenReturn(Optional.empty());
+
+        snapshotProductsDao.findAll(ProductSort.PRICE);
+
+        verify(delegate).findAll(ProductSort.PRICE);
+        verify(delegate, never()).findAll();
+    }
+
+    private static List<Long> ids(List<Product> products) {
+        return products.stream().map(Product::getId).toList();
+    }
+}
@@ -0,0 +1,56 @@
+package com.kopylov.springbootonlineshop.metrics;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.exceptions.ProductNotFoundException;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.services.DefaultProductService;
+import com.kopylov.springbootonlineshop.services.ProductService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.aop.aspectj.annotation.AspectJProxyFactory;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class ProductMetricsAspectTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private ProductsDao productsDao;
+    private ProductService productService;
+
+    @BeforeEach
+    public void init() {
+        meterRegistry = new SimpleMeterRegistry();
+        productsDao = mock(ProductsDao.class);
+
+        AspectJProxyFactory proxyFactory = new AspectJProxyFactory(new DefaultProductService(productsDao, null));
+        proxyFactory.addAspect(new ProductMetricsAspect(meterRegistry));
+        productService = proxyFactory.getProxy();
+    }
+
+    @Test
+    void testProductMetricsAspect_ServiceOperation_RecordsTimerPerOperation() {
+        when(productsDao.findAll()).thenReturn(List.of(new Product(1L, "Phone", 1000, "USD", LocalDateTime.now(), 0)));
+
+        productService.findAll("name");
+        productService.findAll("price");
+
+        assertEquals(2, meterRegistry.get(ProductMetricsAspect.SERVICE_TIMER).tag("operation", "findAll").timer().count());
+    }
+
+    @Test
+    void testProductMetricsAspect_ProductNotFound_IncrementsCounter() {
+        when(productsDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.getById(1L));
+
+        assertEquals(1, meterRegistry.get(ProductMetricsAspect.NOT_FOUND).tag("operation", "getById").counter().count());
+        assertEquals(1, meterRegistry.get(ProductMetricsAspect.SERVICE_TIMER).tag("operation", "getById").timer().count());
+    }
+}
@@ -0,0 +1,245 @@
+package com.kopylov.springbootonlineshop.services;
+
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dto.BulkItemResult;
+import com.kopylov.springbootonlineshop.dto.BulkItemStatus;
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductPage;
+import com.kopylov.springbootonlineshop.exceptions.InvalidCursorException;
+import com.kopylov.springbootonlineshop.exceptions.ProductNotFoundException;
+import com.kopylov.springbootonlineshop.exceptions.ProductVersionConflictException;
+import com.kopylov.springbootonlineshop.model.Money;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.services.writebehind.ProductWriteBehind;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+class DefaultProductServiceTest {
+
+    private ProductsDao productsDao;
+    private DefaultProductService productService;
+
+    @BeforeEach
+    public void init() {
+        productsDao = mock(ProductsDao.class);
+        productService = new DefaultProductService(productsDao,
+                Validation.buildDefaultValidatorFactory().getValidator());
+    }
+
+    @Test
+    void testDefaultProductService_CreateProduct_ReturnsStoredRow() {
+        LocalDateTime clientDate = LocalDateTime.of(2000, 1, 1, 0, 0);
+        ProductDto phone = ProductDto.builder().name("Phone").price(1000).creationDate(clientDate).version(7).build();
+        when(productsDao.save(any())).thenReturn(10L);
+
+        ProductDto created = productService.createProduct(phone);
+
+        ArgumentCaptor<Product> saved = ArgumentCaptor.forClass(Product.class);
+        verify(productsDao).save(saved.capture());
+        assertEquals(10L, created.getId());
+        assertEquals(Money.DEFAULT_CURRENCY, created.getCurrency());
+        assertEquals(saved.getValue().getCreationDate(), created.getCreationDate());
+        assertNotEquals(clientDate, created.getCreationDate());
+        assertEquals(0, created.getVersion());
+    }
+
+    @Test
+    void testDefaultProductService_CreateProduct_SubmitsToWriteBehindWhenEnabled() {
+        ProductWriteBehind writeBehind = mock(ProductWriteBehind.class);
+        ProductDto phone = ProductDto.builder().name("Phone").price(1000).build();
+        ProductDto accepted = ProductDto.builder().id(10L).name("Phone").price(1000)
+                .creationDate(LocalDateTime.now()).build();
+        when(writeBehind.submit(phone)).thenReturn(accepted);
+        ObjectProvider<ProductWriteBehind> writeBehindProvider = mock(ObjectProvider.class);
+        when(writeBehindProvider.getIfAvailable()).thenReturn(writeBehind);
+        productService = new DefaultProductService(productsDao,
+                Validation.buildDefaultValidatorFactory().getValidator(), writeBehindProvider);
+
+        assertSame(accepted, productService.createProduct(phone));
+        verify(productsDao, never()).save(any());
+    }
+
+    @Test
+    void testDefaultProductService_CreateProducts_SkipsInvalidItems() {
+        ProductDto phone = ProductDto.builder().name("Phone").price(1000).creationDate(LocalDateTime.now()).build();
+        ProductDto invalid = ProductDto.builder().name("").price(-1).creationDate(LocalDateTime.now()).build();
+        ProductDto car = ProductDto.builder().name("Car").price(10000).creationDate(LocalDateTime.now()).build();
+        when(productsDao.saveAll(anyList())).thenReturn(List.of(10L, 11L));
+
+        List<BulkItemResult> results = productService.createProducts(List.of(phone, invalid, car));
+
+        assertEquals(3, results.size());
+        assertEquals(BulkItemStatus.CREATED, results.get(0).getStatus());
+        assertEquals(10L, results.get(0).getId());
+        assertEquals(BulkItemStatus.INVALID, results.get(1).getStatus());
+        assertEquals(3, results.get(1).getErrors().size());
+        assertEquals(BulkItemStatus.CREATED, results.get(2).getStatus());
+        assertEquals(11L, results.get(2).getId());
+        verify(productsDao).saveAll(argThat(products -> products.size() == 2));
+    }
+
+    @Test
+    void testDefaultProductService_UpdateProducts_ReportsNotFound() {
+        ProductDto phone = ProductDto.builder().id(1).name("Phone").price(1000).creationDate(LocalDateTime.now()).build();
+        ProductDto missing = ProductDto.builder().id(2).name("Car").price(10000).creationDate(LocalDateTime.now()).build();
+        when(productsDao.updateAll(anyList())).thenReturn(new int[]{1, 0});
+
+        List<BulkItemResult> results = productService.updateProducts(List.of(phone, missing));
+
+        assertEquals(BulkItemStatus.UPDATED, results.get(0).getStatus());
+        assertEquals(BulkItemStatus.NOT_FOUND, results.get(1).getStatus());
+        assertEquals(2L, results.get(1).getId());
+    }
+
+    @Test
+    void testDefaultProductService_DeleteProducts_ReportsNotFound() {
+        when(productsDao.deleteAll(List.of(1L, 2L))).thenReturn(new int[]{1, 0});
+
+        List<BulkItemResult> results = productService.deleteProducts(List.of(1L, 2L));
+
+        assertEquals(BulkItemStatus.DELETED, results.get(0).getStatus());
+        assertEquals(BulkItemStatus.NOT_FOUND, results.get(1).getStatus());
+    }
+
+    @Test
+    void testDefaultProductService_CreateProducts_AllInvalidSkipsDao() {
+        ProductDto invalid = ProductDto.builder().name("").price(0).build();
+
+        List<BulkItemResult> results = productService.createProducts(List.of(invalid));
+
+        assertEquals(BulkItemStatus.INVALID, results.get(0).getStatus());
+        verifyNoInteractions(productsDao);
+    }
+
+    @Test
+    void testDefaultProductService_Search_ReturnsCursorForNextPage() {
+        Product phone = new Product(1L, "Phone", 1000, "USD", LocalDateTime.now(), 0);
+        Product phoneCase = new Product(2L, "Phone case", 10, "USD", LocalDateTime.now(), 0);
+        Product headphones = new Product(3L, "Headphones", 100, "USD", LocalDateTime.now(), 0);
+        when(productsDao.search("pho", 0, 3)).thenReturn(List.of(phone, phoneCase, headphones));
+        when(productsDao.search("pho", 2, 3)).thenReturn(List.of(headphones));
+
+        ProductPage firstPage = productService.search(" pho ", null, 2);
+        ProductPage secondPage = productService.search("pho", firstPage.getNextCursor(), 2);
+
+        assertEquals(List.of(phone, phoneCase), firstPage.getProducts());
+        assertEquals(List.of(headphones), secondPage.getProducts());
+        assertNull(secondPage.getNextCursor());
+    }
+
+    @Test
+    void testDefaultProductService_FindPriceRange_PagesByPriceAndIdInDefaultCurrency() {
+        Product phoneCase = new Product(2L, "Phone case", 999, "USD", LocalDateTime.now(), 0);
+        Product headphones = new Product(3L, "Headphones", 1999, "USD", LocalDateTime.now(), 0);
+        Product phone = new Product(1L, "Phone", 1999, "USD", LocalDateTime.now(), 0);
+        when(productsDao.findPriceRange(eq("USD"), eq(500L), eq(2000L), any(), eq(3))).thenAnswer(invocation -> {
+            Product after = invocation.getArgument(3);
+            return after == null ? List.of(phoneCase, headphones, phone) : List.of(phone);
+        });
+
+        ProductPage firstPage = productService.findPriceRange(500, 2000, null, null, 2);
+        ProductPage secondPage = productService.findPriceRange(500, 2000, "USD", firstPage.getNextCursor(), 2);
+
+        assertEquals(List.of(phoneCase, headphones), firstPage.getProducts());
+        assertEquals(List.of(phone), secondPage.getProducts());
+        assertNull(secondPage.getNextCursor());
+        verify(productsDao).findPriceRange(eq("USD"), eq(500L), eq(2000L),
+                argThat(after -> after != null && after.getPrice() == 1999 && after.getId() == 3L), eq(3));
+    }
+
+    @Test
+    void testDefaultProductService_FindPriceRange_EmptyRangeSkipsQuery() {
+        ProductPage page = productService.findPriceRange(2000, 500, null, null, 20);
+
+        assertTrue(page.getProducts().isEmpty());
+        verifyNoInteractions(productsDao);
+    }
+
+    @Test
+    void testDefaultProductService_Search_BlankQueryReturnsEmptyPage() {
+        ProductPage page = productService.search("  ", null, 20);
+
+        assertTrue(page.getProducts().isEmpty());
+        verify(productsDao, never()).search(anyString(), anyInt(), anyInt());
+    }
+
+    @Test
+    void testDefaultProductService_Search_RejectsListingCursor() {
+        when(productsDao.findPage(any(), any(), anyInt())).thenReturn(List.of(
+                new Product(1L, "Car", 1, "USD", LocalDateTime.now(), 0),
+                new Product(2L, "Phone", 1, "USD", LocalDateTime.now(), 0)));
+        String listingCursor = productService.findPage("name", null, 1).getNextCursor();
+
+        assertNotNull(listingCursor);
+        assertThrows(InvalidCursorException.class, () -> productService.search("pho", listingCursor, 20));
+    }
+
+    @Test
+    void testDefaultProductService_Update_ReturnsUpdatedRowInOneRoundTrip() {
+        ProductDto productDto = ProductDto.builder().name("Phone").price(900).creationDate(LocalDateTime.now()).build();
+        when(productsDao.update(any())).thenReturn(Optional.of(new Product(1L, "Phone", 900, "USD", LocalDateTime.now(), 5)));
+
+        ProductDto updated = productService.update(1L, productDto);
+
+        assertEquals(5, updated.getVersion());
+        assertEquals(1L, updated.getId());
+        verify(productsDao, never()).findById(anyLong());
+    }
+
+    @Test
+    void testDefaultProductService_Update_WithoutCurrencyKeepsStoredCurrency() {
+        ProductDto productDto = ProductDto.builder().name("Phone").price(900).creationDate(LocalDateTime.now()).build();
+        when(productsDao.update(any())).thenReturn(Optional.of(new Product(1L, "Phone", 900, "EUR", LocalDateTime.now(), 5)));
+        when(productsDao.updateAll(anyList())).thenReturn(new int[]{1});
+
+        ProductDto updated = productService.update(1L, productDto);
+        productService.updateProducts(List.of(ProductDto.builder().id(1).name("Phone").price(900)
+                .creationDate(LocalDateTime.now()).build()));
+
+        assertEquals("EUR", updated.getCurrency());
+        verify(productsDao).update(argThat(product -> product.getCurrency() == null));
+        verify(productsDao).updateAll(argThat(products -> products.get(0).getCurrency() == null));
+    }
+
+    @Test
+    void testDefaultProductService_Update_MissingProductThrowsNotFound() {
+        ProductDto productDto = ProductDto.builder().name("Phone").price(900).creationDate(LocalDateTime.now()).build();
+        when(productsDao.update(any())).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.update(1L, productDto));
+    }
+
+    @Test
+    void testDefaultProductService_UpdateWithVersion_StaleVersionThrowsConflict() {
+        ProductDto productDto = ProductDto.builder().name("Phone").price(900).creationDate(LocalDateTime.now()).build();
+        when(productsDao.update(any(), eq(2L))).thenReturn(Optional.empty());
+        when(productsDao.findById(1L)).thenReturn(Optional.of(new Product(1L, "Phone", 1000, "USD", LocalDateTime.now(), 3)));
+
+        assertThrows(ProductVersionConflictException.class, () -> productService.update(1L, productDto, 2L));
+    }
+
+    @Test
+    void testDefaultProductService_UpdateWithVersion_MissingProductThrowsNotFound() {
+        ProductDto productDto = ProductDto.builder().name("Phone").price(900).creationDate(LocalDateTime.now()).build();
+        when(productsDao.update(any(), eq(2L))).thenReturn(Optional.empty());
+        when(productsDao.findById(1L)).thenReturn(Optional.empty());
+
+        assertThrows(ProductNotFoundException.class, () -> productService.update(1L, productDto, 2L));
+    }
+}
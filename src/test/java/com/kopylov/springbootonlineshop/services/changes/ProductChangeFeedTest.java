@@ -0,0 +1,205 @@
+package com.kopylov.springbootonlineshop.services.changes;
+
+import com.kopylov.springbootonlineshop.dao.ProductChangesDao;
+import com.kopylov.springbootonlineshop.exceptions.TooManySubscribersException;
+import com.kopylov.springbootonlineshop.model.Product;
+import com.kopylov.springbootonlineshop.model.ProductChange;
+import com.kopylov.springbootonlineshop.model.ProductChangeType;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.OptionalLong;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.*;
+
+class ProductChangeFeedTest {
+
+    private ProductChangesDao productChangesDao;
+    private ProductChangeFeed productChangeFeed;
+    private RecordingListener listener;
+    private long latestOffset;
+
+    @BeforeEach
+    public void init() {
+        productChangesDao = mock(ProductChangesDao.class);
+        latestOffset = 10;
+        when(productChangesDao.findLatestOffset()).thenAnswer(invocation -> latestOffset);
+        when(productChangesDao.findEarliestOffset()).thenReturn(5L);
+        when(productChangesDao.findAfter(anyLong(), anyInt())).thenAnswer(invocation -> {
+            long offset = invocation.getArgument(0);
+            int limit = invocation.getArgument(1);
+            return LongStream.rangeClosed(offset + 1, Math.min(offset + limit, latestOffset))
+                    .mapToObj(ProductChangeFeedTest::change)
+                    .toList();
+        });
+        productChangeFeed = new ProductChangeFeed(productChangesDao, 2, Duration.ofSeconds(1), Duration.ofHours(1),
+                Duration.ofDays(7), 2);
+        listener = new RecordingListener();
+    }
+
+    @AfterEach
+    public void close() {
+        productChangeFeed.stop();
+    }
+
+    @Test
+    void testProductChangeFeed_Subscribe_FollowsFromLatestInPages() throws IOException {
+        ProductChangeFeed.Subscription subscription = productChangeFeed.subscribe(OptionalLong.empty(), listener);
+        latestOffset = 15;
+
+        productChangeFeed.poll();
+
+        awaitOffset(subscription, 15);
+        assertEquals(List.of(11L, 12L, 13L, 14L, 15L), listener.offsets);
+        verify(productChangesDao, times(3)).findAfter(anyLong(), eq(2));
+    }
+
+    @Test
+    void testProductChangeFeed_Subscribe_ResumesAfterOffset() throws IOException {
+        ProductChangeFeed.Subscription subscription = productChangeFeed.subscribe(OptionalLong.of(7), listener);
+
+        productChangeFeed.poll();
+
+        awaitOffset(subscription, 10);
+        assertEquals(List.of(8L, 9L, 10L), listener.offsets);
+        assertTrue(listener.resyncs.isEmpty());
+    }
+
+    @Test
+    void testProductChangeFeed_Subscribe_ResyncsPrunedOrUnknownOffset() throws IOException {
+        productChangeFeed.subscribe(OptionalLong.of(3), listener);
+        productChangeFeed.subscribe(OptionalLong.of(11), listener);
+
+        assertEquals(List.of(10L, 10L), listener.resyncs);
+    }
+
+    @Test
+    void testProductChangeFeed_Subscribe_RejectsBeyondMaxSubscribers() throws IOException {
+        productChangeFeed.subscribe(OptionalLong.empty(), listener);
+        productChangeFeed.subscribe(OptionalLong.empty(), listener);
+
+        assertThrows(RuntimeException.class, () -> productChangeFeed.subscribe(OptionalLong.empty(), listener));
+    }
+
+    @Test
+    void testProductChangeFeed_Subscribe_ConcurrentCallsStayWithinMaxSubscribers() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger reading = new AtomicInteger();
+        when(productChangesDao.findLatestOffset()).thenAnswer(invocation -> {
+            reading.incrementAndGet();
+            release.await();
+            return latestOffset;
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<ProductChangeFeed.Subscription>> subscriptions = new ArrayList<>();
+            for (int i = 0; i < 4; i++) {
+                subscriptions.add(executor.submit(() -> productChangeFeed.subscribe(OptionalLong.empty(), listener)));
+            }
+            // Every call is either rejected or inside the subscription before any of them completes.
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (reading.get() + subscriptions.stream().filter(Future::isDone).count() < 4
+                    && System.nanoTime() < deadline) {
+                Thread.onSpinWait();
+            }
+            release.countDown();
+
+            int rejected = 0;
+            for (Future<ProductChangeFeed.Subscription> subscription : subscriptions) {
+                try {
+                    subscription.get(5, TimeUnit.SECONDS);
+                } catch (ExecutionException e) {
+                    assertInstanceOf(TooManySubscribersException.class, e.getCause());
+                    rejected++;
+                }
+            }
+            assertEquals(2, rejected);
+            assertEquals(2, productChangeFeed.getSubscriberCount());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testProductChangeFeed_Unsubscribe_FreesSlot() throws IOException {
+        ProductChangeFeed.Subscription first = productChangeFeed.subscribe(OptionalLong.empty(), listener);
+        productChangeFeed.subscribe(OptionalLong.empty(), listener);
+
+        productChangeFeed.unsubscribe(first);
+        productChangeFeed.unsubscribe(first);
+
+        productChangeFeed.subscribe(OptionalLong.empty(), listener);
+        assertThrows(TooManySubscribersException.class,
+                () -> productChangeFeed.subscribe(OptionalLong.empty(), listener));
+    }
+
+    @Test
+    void testProductChangeFeed_Poll_DropsSubscriberWhoseListenerFails() throws IOException {
+        listener.failing = true;
+        productChangeFeed.subscribe(OptionalLong.of(7), listener);
+
+        productChangeFeed.poll();
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (productChangeFeed.getSubscriberCount() > 0 && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(0, productChangeFeed.getSubscriberCount());
+    }
+
+    private static void awaitOffset(ProductChangeFeed.Subscription subscription, long offset) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (subscription.getOffset() < offset && System.nanoTime() < deadline) {
+            Thread.onSpinWait();
+        }
+        assertEquals(offset, subscription.getOffset());
+    }
+
+    private static ProductChange change(long offset) {
+        return new ProductChange(offset, offset, ProductChangeType.UPDATE,
+                new Product(1L, "Phone", 1500, "USD", LocalDateTime.now(), offset), Instant.now());
+    }
+
+    private static final class RecordingListener implements ProductChangeListener {
+
+        private final List<Long> offsets = new CopyOnWriteArrayList<>();
+        private final List<Long> resyncs = new CopyOnWriteArrayList<>();
+        private volatile boolean failing;
+
+        @Override
+        public void onChanges(List<ProductChange> changes) throws IOException {
+            if (failing) {
+                throw new IOException("Broken pipe");
+            }
+            changes.forEach(change -> offsets.add(change.getOffset()));
+        }
+
+        @Override
+        public void onResync(long offset) {
+            resyncs.add(offset);
+        }
+
+        @Override
+        public void onHeartbeat() {
+        }
+    }
+}
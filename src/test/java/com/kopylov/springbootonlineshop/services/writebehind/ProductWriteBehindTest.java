@@ -0,0 +1,204 @@
+package com.kopylov.springbootonlineshop.services.writebehind;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.kopylov.springbootonlineshop.dao.ProductsDao;
+import com.kopylov.springbootonlineshop.dto.ProductDto;
+import com.kopylov.springbootonlineshop.dto.ProductWriteState;
+import com.kopylov.springbootonlineshop.dto.ProductWriteStatus;
+import com.kopylov.springbootonlineshop.exceptions.WriteBehindRejectedException;
+import com.kopylov.springbootonlineshop.model.Product;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.CannotGetJdbcConnectionException;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+class ProductWriteBehindTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @TempDir
+    private Path directory;
+
+    private ProductsDao productsDao;
+    private List<List<Long>> insertedBatches;
+    private long nextReservedId;
+    private ProductWriteBehind writeBehind;
+
+    @BeforeEach
+    public void init() {
+        productsDao = mock(ProductsDao.class);
+        insertedBatches = new CopyOnWriteArrayList<>();
+        nextReservedId = 100;
+        when(productsDao.reserveIds(anyInt())).thenAnswer(invocation -> {
+            int count = invocation.getArgument(0);
+            List<Long> ids = LongStream.range(nextReservedId, nextReservedId + count).boxed().toList();
+            nextReservedId += count;
+            return ids;
+        });
+        when(productsDao.insertAll(anyList())).thenAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            insertedBatches.add(batch.stream().map(Product::getId).toList());
+            return batch.size();
+        });
+        when(productsDao.findById(anyLong())).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    public void close() throws IOException {
+        if (writeBehind != null) {
+            writeBehind.stop();
+        }
+    }
+
+    @Test
+    void testProductWriteBehind_Submit_AssignsReservedIdsAndFlushes() throws IOException {
+        writeBehind = start(10, 2);
+
+        ProductDto first = writeBehind.submit(productDto("Phone"));
+        ProductDto second = writeBehind.submit(productDto("Bike"));
+        ProductDto third = writeBehind.submit(productDto("Car"));
+
+        assertEquals(List.of(100L, 101L, 102L), List.of(first.getId(), second.getId(), third.getId()));
+        assertNotNull(first.getCreationDate());
+        assertEquals("Phone", first.getName());
+        verify(productsDao, times(2)).reserveIds(2);
+        assertEquals(ProductWriteState.PERSISTED, await(102L, ProductWriteState.PERSISTED).getState());
+        assertEquals(List.of(100L, 101L, 102L), insertedBatches.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void testProductWriteBehind_Flush_RetriesTransientFailures() throws IOException {
+        doThrow(new CannotGetJdbcConnectionException("Connection refused"))
+                .doThrow(new QueryTimeoutException("Timed out"))
+                .doReturn(1)
+                .when(productsDao).insertAll(anyList());
+        writeBehind = start(10, 10);
+
+        long id = writeBehind.submit(productDto("Phone")).getId();
+
+        ProductWriteStatus status = await(id, ProductWriteState.PERSISTED);
+        assertEquals(3, status.getAttempts());
+        verify(productsDao, times(3)).insertAll(anyList());
+    }
+
+    @Test
+    void testProductWriteBehind_Flush_FailsOnlyRejectedProductOfBatch() throws IOException, InterruptedException {
+        CountDownLatch firstInsert = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            firstInsert.await(5, TimeUnit.SECONDS);
+            if (batch.stream().anyMatch(product -> product.getName().length() > 20)) {
+                throw new DataIntegrityViolationException("value too long for type character varying(20)");
+            }
+            insertedBatches.add(batch.stream().map(Product::getId).toList());
+            return batch.size();
+        }).when(productsDao).insertAll(anyList());
+        writeBehind = start(10, 10);
+
+        long blocker = writeBehind.submit(productDto("Blocker")).getId();
+        long valid = writeBehind.submit(productDto("Phone")).getId();
+        long tooLong = writeBehind.submit(productDto("A name far too long for the column")).getId();
+        long alsoValid = writeBehind.submit(productDto("Bike")).getId();
+        firstInsert.countDown();
+
+        ProductWriteStatus failed = await(tooLong, ProductWriteState.FAILED);
+        assertTrue(failed.getError().contains("too long"));
+        await(alsoValid, ProductWriteState.PERSISTED);
+        assertEquals(List.of(blocker, valid, alsoValid), insertedBatches.stream().flatMap(List::stream).toList());
+    }
+
+    @Test
+    void testProductWriteBehind_Start_ReplaysUnflushedJournal() throws IOException {
+        doThrow(new CannotGetJdbcConnectionException("Connection refused")).when(productsDao).insertAll(anyList());
+        ProductWriteBehind crashed = new ProductWriteBehind(productsDao, directory.resolve("products.journal"),
+                objectMapper, true, 10, 10, 10, Duration.ofMillis(10), Duration.ofMillis(10), Duration.ofMillis(50));
+        crashed.start();
+        long id = crashed.submit(productDto("Phone")).getId();
+        crashed.stop();
+
+        reset(productsDao);
+        List<String> insertedNames = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            List<Product> batch = invocation.getArgument(0);
+            insertedBatches.add(batch.stream().map(Product::getId).toList());
+            batch.forEach(product -> insertedNames.add(product.getName()));
+            return batch.size();
+        }).when(productsDao).insertAll(anyList());
+        writeBehind = start(10, 10);
+
+        await(id, ProductWriteState.PERSISTED);
+        assertEquals(List.of(List.of(id)), insertedBatches);
+        assertEquals(List.of("Phone"), insertedNames);
+    }
+
+    @Test
+    void testProductWriteBehind_Submit_RejectsWhenQueueIsFull() throws IOException {
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        }).when(productsDao).insertAll(anyList());
+        writeBehind = start(2, 10);
+
+        writeBehind.submit(productDto("Phone"));
+        writeBehind.submit(productDto("Bike"));
+
+        assertThrows(WriteBehindRejectedException.class, () -> writeBehind.submit(productDto("Car")));
+        release.countDown();
+    }
+
+    @Test
+    void testProductWriteBehind_GetStatus_FallsBackToDatabase() throws IOException {
+        writeBehind = start(10, 10);
+        when(productsDao.findById(7L)).thenReturn(Optional.of(new Product(7L, "Phone", 1500, "USD", LocalDateTime.now(), 0)));
+
+        assertEquals(ProductWriteState.PERSISTED, writeBehind.getStatus(7L).orElseThrow().getState());
+        assertTrue(writeBehind.getStatus(8L).isEmpty());
+    }
+
+    private ProductWriteBehind start(int capacity, int idBlockSize) throws IOException {
+        ProductWriteBehind started = new ProductWriteBehind(productsDao, directory.resolve("products.journal"),
+                objectMapper, true, capacity, 10, idBlockSize, Duration.ofMillis(10), Duration.ofMillis(10),
+                Duration.ofSeconds(5));
+        started.start();
+        return started;
+    }
+
+    private ProductWriteStatus await(long id, ProductWriteState state) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            Optional<ProductWriteStatus> status = writeBehind.getStatus(id);
+            if (status.isPresent() && status.get().getState() == state) {
+                return status.get();
+            }
+            Thread.onSpinWait();
+        }
+        return fail("Product " + id + " did not become " + state);
+    }
+
+    private static ProductDto productDto(String name) {
+        ProductDto productDto = new ProductDto();
+        productDto.setName(name);
+        productDto.setPrice(1500);
+        return productDto;
+    }
+}